@@ -0,0 +1,210 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import components.utilities.Reporter;
+
+/**
+ * Hands pages to a dedicated writer thread, so rendering and disk I/O overlap.
+ * The queue between the two is bounded: when the writer falls behind,
+ * {@link #write} blocks until there is room again.
+ *
+ * <p>
+ * An error on the writer thread, exceptions and {@code Error}s such as a
+ * failed assertion alike, is thrown to the caller, wrapped in an
+ * {@code IllegalStateException}, by the next {@link #write} or by
+ * {@link #close}. The writer keeps taking pages off the queue after an error,
+ * so neither method blocks forever. The writer is a daemon thread, so a
+ * caller that fails without closing the sink does not keep the JVM running;
+ * callers should still close the sink in a {@code finally} block so queued
+ * pages are written.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public final class AsyncPageSink implements PageSink {
+
+    /**
+     * A page waiting to be written.
+     */
+    private static final class Page {
+
+        /**
+         * The path of the page.
+         */
+        private final String path;
+
+        /**
+         * The bytes of the page.
+         */
+        private final byte[] content;
+
+        /**
+         * Creates a queued page.
+         *
+         * @param path
+         *            the path of the page
+         * @param content
+         *            the bytes of the page
+         */
+        private Page(String path, byte[] content) {
+            this.path = path;
+            this.content = content;
+        }
+    }
+
+    /**
+     * Marks the end of the queue.
+     */
+    private static final Page END = new Page(null, null);
+
+    /**
+     * Largest number of pages the writer takes off the queue at once.
+     */
+    private static final int BATCH_SIZE = 64;
+
+    /**
+     * Pages waiting to be written.
+     */
+    private final BlockingQueue<Page> queue;
+
+    /**
+     * The sink the writer thread writes to.
+     */
+    private final PageSink delegate;
+
+    /**
+     * The writer thread.
+     */
+    private final Thread writer;
+
+    /**
+     * The first error the writer thread hit, or null.
+     */
+    private volatile Throwable failure = null;
+
+    /**
+     * Creates an asynchronous sink and starts its writer thread.
+     *
+     * @param delegate
+     *            the sink the writer thread writes to
+     * @param capacity
+     *            the most pages that may wait in the queue
+     * @requires delegate is not null and capacity > 0
+     */
+    public AsyncPageSink(PageSink delegate, int capacity) {
+        assert delegate != null : "Violation of: delegate is not null";
+        assert capacity > 0 : "Violation of: capacity > 0";
+
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                AsyncPageSink.this.drain();
+            }
+        }, "glossary-page-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Records {@code t} as the writer thread's error, unless there already is
+     * one.
+     *
+     * @param t
+     *            the error
+     */
+    private void fail(Throwable t) {
+        if (this.failure == null) {
+            this.failure = t;
+        }
+    }
+
+    /**
+     * Body of the writer thread. Takes pages off the queue in batches until
+     * {@code END} and writes them to the delegate. After an error the
+     * remaining pages are dropped, but the queue is still drained so that
+     * {@link #write} and {@link #close} never block forever.
+     */
+    private void drain() {
+        List<Page> batch = new ArrayList<>(BATCH_SIZE);
+        boolean done = false;
+        while (!done) {
+            try {
+                batch.add(this.queue.take());
+            } catch (InterruptedException e) {
+                this.fail(new IllegalStateException("page writer interrupted", e));
+            }
+            this.queue.drainTo(batch, BATCH_SIZE - 1);
+            for (Page page : batch) {
+                if (page == END) {
+                    done = true;
+                } else if (this.failure == null) {
+                    try {
+                        this.delegate.write(page.path, page.content);
+                    } catch (Throwable t) {
+                        // even an Error must not stop the queue being drained
+                        this.fail(t);
+                    }
+                }
+            }
+            batch.clear();
+        }
+        try {
+            this.delegate.close();
+        } catch (Throwable t) {
+            this.fail(t);
+        }
+    }
+
+    /**
+     * Throws the writer thread's error to the caller, if there was one.
+     */
+    private void checkFailure() {
+        if (this.failure != null) {
+            throw new IllegalStateException("Writing pages failed: " + this.failure,
+                    this.failure);
+        }
+    }
+
+    /**
+     * Puts a page on the queue, waiting for room if it is full.
+     *
+     * @param page
+     *            the page to queue
+     */
+    private void enqueue(Page page) {
+        try {
+            this.queue.put(page);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Reporter.fatalErrorToConsole("Interrupted while queueing pages");
+        }
+    }
+
+    @Override
+    public void write(String path, byte[] content) {
+        assert path != null : "Violation of: path is not null";
+        assert !path.equals("") : "Violation of: path is not empty";
+        assert content != null : "Violation of: content is not null";
+
+        this.checkFailure();
+        this.enqueue(new Page(path, content));
+    }
+
+    @Override
+    public void close() {
+        this.enqueue(END);
+        try {
+            this.writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Reporter.fatalErrorToConsole(
+                    "Interrupted while waiting for pages to be written");
+        }
+        this.checkFailure();
+    }
+
+}
@@ -0,0 +1,320 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+
+import components.utilities.Reporter;
+
+/**
+ * A record, kept in the output folder, of the pages a run has finished. If
+ * the run is killed, the next one can resume: pages in the journal whose file
+ * is still there with the recorded size and SHA-256 hash are not generated
+ * again.
+ *
+ * <p>
+ * The journal starts with a fingerprint of the input and the settings; a
+ * journal from a different glossary is ignored and started over. Each
+ * finished page adds a line "size TAB hash TAB path". Lines are flushed in batches, so
+ * a crash can lose the last few, which only means those pages are generated
+ * again; a torn last line is ignored.
+ *
+ * <p>
+ * Opening the journal deletes the temporary files ({@link FilePageSink}'s
+ * {@code .glossary-tmp} files) that a killed run may have left for the pages
+ * it records; a page that was being written when the run was killed is not
+ * recorded, and writing it again replaces its temporary file. No other file
+ * in the folder is touched.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public final class CheckpointJournal {
+
+    /**
+     * Name of the journal file in the output folder.
+     */
+    public static final String FILE_NAME = ".glossary-journal";
+
+    /**
+     * Start of the first line of a journal, before the fingerprint.
+     */
+    private static final String HEADER = "glossary-journal 2 ";
+
+    /**
+     * Length of a SHA-256 hash in hexadecimal.
+     */
+    private static final int HASH_LENGTH = 64;
+
+    /**
+     * Number of pages recorded between flushes of the journal.
+     */
+    private static final int FLUSH_INTERVAL = 64;
+
+    /**
+     * A page recorded in the journal.
+     */
+    private static final class Page {
+
+        /**
+         * Size of the page in bytes.
+         */
+        private final long size;
+
+        /**
+         * SHA-256 hash of the page, in hexadecimal.
+         */
+        private final String hash;
+
+        /**
+         * Creates a recorded page.
+         *
+         * @param size
+         *            size of the page
+         * @param hash
+         *            hash of the page
+         */
+        private Page(long size, String hash) {
+            this.size = size;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * The output folder.
+     */
+    private final Path folder;
+
+    /**
+     * Each page finished by an earlier run, by path. Only read after the
+     * journal is opened.
+     */
+    private final HashMap<String, Page> completed = new HashMap<>();
+
+    /**
+     * Hashes the pages on disk to check them against the journal.
+     */
+    private final ContentHash hasher = new ContentHash();
+
+    /**
+     * Appends to the journal.
+     */
+    private final Writer out;
+
+    /**
+     * Pages recorded since the last flush.
+     */
+    private int unflushed = 0;
+
+    /**
+     * Opens the journal of {@code folderLocation}. When resuming, the pages
+     * recorded by an earlier run with the same fingerprint are kept;
+     * otherwise the journal is started over.
+     *
+     * @param folderLocation
+     *            the output folder
+     * @param fingerprint
+     *            fingerprint of the glossary and settings of this run
+     * @param resume
+     *            whether to keep the pages of an earlier run
+     * @requires folderLocation is not null or empty
+     */
+    public CheckpointJournal(String folderLocation, long fingerprint, boolean resume) {
+        assert folderLocation != null : "Violation of: folderLocation is not null";
+        assert !folderLocation.equals("") : "Violation of: folderLocation is not empty";
+
+        this.folder = Paths.get(folderLocation);
+        Path file = this.folder.resolve(FILE_NAME);
+        String header = HEADER + Long.toHexString(fingerprint);
+        if (Files.isRegularFile(file)) {
+            this.load(file, header, resume);
+        }
+
+        Writer writer = null;
+        try {
+            Files.createDirectories(this.folder);
+            Path temp = this.folder.resolve(FILE_NAME + FilePageSink.TEMP_SUFFIX);
+            Files.deleteIfExists(temp);
+            if (this.completed.isEmpty()) {
+                /*
+                 * Starts a new journal; the rename keeps a crash from leaving
+                 * one without its header.
+                 */
+                Files.write(temp, (header + "\n").getBytes(StandardCharsets.UTF_8));
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            Reporter.fatalErrorToConsole("Could not open " + file + ": " + e);
+        }
+        this.out = writer;
+    }
+
+    /**
+     * Deletes the temporary file a killed run may have left for the page at
+     * {@code path}. Paths that lead out of the output folder are ignored.
+     *
+     * @param path
+     *            path of the page, relative to the output folder
+     */
+    private void deleteTemporaryFile(String path) {
+        Path root = this.folder.toAbsolutePath().normalize();
+        Path temp = root.resolve(path + FilePageSink.TEMP_SUFFIX).normalize();
+        if (temp.startsWith(root)) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException | RuntimeException e) {
+                // a file that cannot be deleted is replaced by the next write
+            }
+        }
+    }
+
+    /**
+     * Reads the pages recorded in the journal, deleting their leftover
+     * temporary files. The pages are kept as finished if resuming and the
+     * header matches.
+     *
+     * @param file
+     *            the journal file
+     * @param header
+     *            the expected first line
+     * @param resume
+     *            whether to keep the pages of an earlier run
+     */
+    private void load(Path file, String header, boolean resume) {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            boolean keep = header.equals(in.readLine()) && resume;
+            String line = in.readLine();
+            while (line != null) {
+                /*
+                 * Paths never hold a tab, so the path is after the last one,
+                 * in this and the earlier format alike.
+                 */
+                int tab = line.indexOf('\t');
+                int lastTab = line.lastIndexOf('\t');
+                if (tab > 0 && lastTab < line.length() - 1) {
+                    String path = line.substring(lastTab + 1);
+                    this.deleteTemporaryFile(path);
+                    try {
+                        long size = Long.parseLong(line.substring(0, tab));
+                        String hash = line.substring(tab + 1, lastTab);
+                        if (keep && hash.length() == HASH_LENGTH) {
+                            this.completed.put(path, new Page(size, hash));
+                        }
+                    } catch (NumberFormatException e) {
+                        // a torn line; its page is simply generated again
+                    }
+                }
+                line = in.readLine();
+            }
+        } catch (IOException e) {
+            // an unreadable journal means starting over
+            this.completed.clear();
+        }
+    }
+
+    /**
+     * Reports whether the page at {@code path} was finished by an earlier run
+     * and its file is still the one recorded. The file is read to compare its
+     * hash, which is still much cheaper than generating and writing it again.
+     *
+     * @param path
+     *            path of the page, relative to the output folder
+     * @return true if the page need not be generated again
+     */
+    public boolean isComplete(String path) {
+        boolean complete = false;
+        Page page = this.completed.get(path);
+        if (page != null) {
+            try {
+                Path file = this.folder.resolve(path);
+                complete = Files.size(file) == page.size
+                        && this.hasher.of(Files.readAllBytes(file)).equals(page.hash);
+            } catch (IOException e) {
+                // a missing page is generated again
+                complete = false;
+            }
+        }
+        return complete;
+    }
+
+    /**
+     * Returns the size recorded for the page at {@code path}.
+     *
+     * @param path
+     *            path of the page, relative to the output folder
+     * @return the size of the page in bytes
+     * @requires isComplete(path)
+     */
+    public long recordedSize(String path) {
+        assert this.completed.containsKey(path) : "Violation of: isComplete(path)";
+
+        return this.completed.get(path).size;
+    }
+
+    /**
+     * Returns the SHA-256 hash recorded for the page at {@code path}.
+     *
+     * @param path
+     *            path of the page, relative to the output folder
+     * @return the hash of the page, in hexadecimal
+     * @requires isComplete(path)
+     */
+    public String recordedHash(String path) {
+        assert this.completed.containsKey(path) : "Violation of: isComplete(path)";
+
+        return this.completed.get(path).hash;
+    }
+
+    /**
+     * Returns the number of pages finished by an earlier run.
+     *
+     * @return the number of pages in the journal when it was opened
+     */
+    public int resumedCount() {
+        return this.completed.size();
+    }
+
+    /**
+     * Records that the page at {@code path} is finished.
+     *
+     * @param path
+     *            path of the page, relative to the output folder
+     * @param size
+     *            size of the page in bytes
+     * @param hash
+     *            SHA-256 hash of the page, in hexadecimal
+     */
+    public void record(String path, long size, String hash) {
+        try {
+            this.out.write(size + "\t" + hash + "\t" + path + "\n");
+            this.unflushed++;
+            if (this.unflushed == FLUSH_INTERVAL) {
+                this.out.flush();
+                this.unflushed = 0;
+            }
+        } catch (IOException e) {
+            Reporter.fatalErrorToConsole("Could not write " + FILE_NAME + ": " + e);
+        }
+    }
+
+    /**
+     * Flushes and closes the journal.
+     */
+    public void close() {
+        try {
+            this.out.close();
+        } catch (IOException e) {
+            Reporter.fatalErrorToConsole("Could not write " + FILE_NAME + ": " + e);
+        }
+    }
+
+}
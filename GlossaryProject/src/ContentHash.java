@@ -0,0 +1,79 @@
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import components.utilities.Reporter;
+
+/**
+ * Computes the SHA-256 hashes of files, written in hexadecimal. The same bytes
+ * always give the same hash, so it can be stored and compared between runs.
+ * An instance reuses its digest, so it must only be used by one thread at a
+ * time.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public final class ContentHash {
+
+    /**
+     * Hexadecimal digits.
+     */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Hashes the contents, reused for every one.
+     */
+    private final MessageDigest digest;
+
+    /**
+     * Creates a hasher.
+     */
+    public ContentHash() {
+        this.digest = sha256();
+    }
+
+    /**
+     * Returns a new SHA-256 digest.
+     *
+     * @return the digest
+     */
+    public static MessageDigest sha256() {
+        MessageDigest sha256 = null;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            Reporter.fatalErrorToConsole("SHA-256 is not available: " + e);
+        }
+        return sha256;
+    }
+
+    /**
+     * Returns {@code bytes} in hexadecimal, two lowercase digits per byte.
+     *
+     * @param bytes
+     *            the bytes to write
+     * @return the hexadecimal digits
+     */
+    public static String hex(byte[] bytes) {
+        char[] hex = new char[2 * bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX[(bytes[i] >>> 4) & 0xF];
+            hex[2 * i + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Returns the SHA-256 hash of {@code content} in hexadecimal.
+     *
+     * @param content
+     *            the bytes to hash
+     * @return the hash
+     * @requires content is not null
+     */
+    public String of(byte[] content) {
+        assert content != null : "Violation of: content is not null";
+
+        return hex(this.digest.digest(content));
+    }
+
+}
@@ -0,0 +1,130 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Writes each page straight to its file in the output folder. Folders in a
+ * page's path are created the first time they are needed. A page that cannot
+ * be written is reported with an {@code UncheckedIOException}.
+ *
+ * <p>
+ * An atomic sink writes each page to a temporary file next to it, named
+ * after the page with {@link #TEMP_SUFFIX} added, forces it to disk and then
+ * renames it into place, so neither a killed run nor a crash of the machine
+ * leaves a half-written page behind. Writing the page again replaces a
+ * temporary file left by a killed run, and {@link CheckpointJournal} removes
+ * those of the pages it records.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public final class FilePageSink implements PageSink {
+
+    /**
+     * Ending added to a page's name for its temporary file in atomic mode.
+     * It is particular to this program, so no other file is mistaken for
+     * one.
+     */
+    public static final String TEMP_SUFFIX = ".glossary-tmp";
+
+    /**
+     * The output folder.
+     */
+    private final Path folder;
+
+    /**
+     * Folders known to exist, so each one is only checked once.
+     */
+    private final Set<Path> existingFolders = new HashSet<>();
+
+    /**
+     * Whether pages are written to a temporary file and renamed into place.
+     */
+    private final boolean atomic;
+
+    /**
+     * Creates a sink writing into {@code folderLocation}.
+     *
+     * @param folderLocation
+     *            the output folder
+     * @requires folderLocation is not null or empty
+     */
+    public FilePageSink(String folderLocation) {
+        this(folderLocation, false);
+    }
+
+    /**
+     * Creates a sink writing into {@code folderLocation}, atomically or not.
+     *
+     * @param folderLocation
+     *            the output folder
+     * @param atomic
+     *            true to write each page to a temporary file and rename it
+     *            into place
+     * @requires folderLocation is not null or empty
+     */
+    public FilePageSink(String folderLocation, boolean atomic) {
+        assert folderLocation != null : "Violation of: folderLocation is not null";
+        assert !folderLocation.equals("") : "Violation of: folderLocation is not empty";
+
+        this.folder = Paths.get(folderLocation);
+        this.atomic = atomic;
+    }
+
+    @Override
+    public void write(String path, byte[] content) {
+        assert path != null : "Violation of: path is not null";
+        assert !path.equals("") : "Violation of: path is not empty";
+        assert content != null : "Violation of: content is not null";
+
+        Path file = this.folder.resolve(path);
+        Path parent = file.getParent();
+        if (parent != null && !this.existingFolders.contains(parent)) {
+            try {
+                Files.createDirectories(parent);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not create " + parent, e);
+            }
+            this.existingFolders.add(parent);
+        }
+        Path target = file;
+        if (this.atomic) {
+            target = file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+        }
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (this.atomic) {
+                // otherwise a crash could leave the renamed page empty
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write " + target, e);
+        }
+        if (this.atomic) {
+            try {
+                Files.move(target, file, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not rename " + target, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        // nothing to release; every write is complete when it returns
+    }
+
+}
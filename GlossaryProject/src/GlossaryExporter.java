@@ -0,0 +1,76 @@
+import java.util.Arrays;
+
+import components.map.Map;
+
+/**
+ * Exports a glossary in several formats at once. The terms are sorted and
+ * linked once, and each term is handed to every renderer in turn, so adding a
+ * format does not add another pass over the glossary.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public final class GlossaryExporter {
+
+    /**
+     * No argument constructor--private to prevent instantiation.
+     */
+    private GlossaryExporter() {
+    }
+
+    /**
+     * Renders {@code glossary} with every renderer and writes each result to
+     * {@code sink}.
+     *
+     * @param glossary
+     *            the glossary to export
+     * @param linker
+     *            the linker for the glossary's terms
+     * @param renderers
+     *            the formats to produce
+     * @param sink
+     *            where the files are written
+     * @requires glossary, linker, renderers and sink are not null, and sink is
+     *           open
+     * @ensures one file per renderer is written to sink
+     */
+    public static void export(Map<String, String> glossary, TermLinker linker,
+            GlossaryRenderer[] renderers, PageSink sink) {
+        assert glossary != null : "Violation of: glossary is not null";
+        assert linker != null : "Violation of: linker is not null";
+        assert renderers != null : "Violation of: renderers is not null";
+        assert sink != null : "Violation of: sink is not null";
+
+        String[] terms = new String[glossary.size()];
+        int n = 0;
+        for (Map.Pair<String, String> pair : glossary) {
+            terms[n] = pair.key();
+            n++;
+        }
+        Arrays.sort(terms);
+
+        PageBuffer[] outs = new PageBuffer[renderers.length];
+        for (int r = 0; r < renderers.length; r++) {
+            outs[r] = new PageBuffer();
+            renderers[r].begin(outs[r], terms.length);
+        }
+
+        /*
+         * The single pass: each definition is linked once and shared by all
+         * the renderers.
+         */
+        LinkedDefinition definition = new LinkedDefinition();
+        for (String term : terms) {
+            definition.resolve(linker, glossary.value(term));
+            for (int r = 0; r < renderers.length; r++) {
+                renderers[r].term(outs[r], term, definition);
+            }
+        }
+
+        for (int r = 0; r < renderers.length; r++) {
+            renderers[r].end(outs[r]);
+            sink.write(renderers[r].fileName(), outs[r].toBytes());
+        }
+    }
+
+}
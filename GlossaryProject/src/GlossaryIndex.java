@@ -0,0 +1,231 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import components.map.Map;
+
+/**
+ * A read-only index of a glossary for answering lookups from other code, such
+ * as an editor's autocomplete. The terms are kept in two sorted arrays, by
+ * term and by {@link TermKeys} key, and every query is a binary search plus a
+ * short scan, so it takes microseconds even with a million terms.
+ *
+ * <p>
+ * The index is a snapshot: it does not see changes made to the glossary after
+ * it was built. It is never modified, so any number of threads may query it.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public final class GlossaryIndex {
+
+    /**
+     * The terms, sorted.
+     */
+    private final String[] terms;
+
+    /**
+     * The definition of each term in {@code terms}.
+     */
+    private final String[] definitions;
+
+    /**
+     * The keys of the terms, sorted.
+     */
+    private final String[] keys;
+
+    /**
+     * For each key in {@code keys}, the index of its term in {@code terms}.
+     * Terms with the same key are in term order.
+     */
+    private final int[] keyTerms;
+
+    /**
+     * Finds the terms used in definitions.
+     */
+    private final TermLinker linker;
+
+    /**
+     * Builds the index of {@code glossary}.
+     *
+     * @param glossary
+     *            the glossary
+     * @param linker
+     *            a linker for the terms of the glossary
+     * @requires glossary is not null and linker is not null
+     */
+    public GlossaryIndex(Map<String, String> glossary, TermLinker linker) {
+        assert glossary != null : "Violation of: glossary is not null";
+        assert linker != null : "Violation of: linker is not null";
+
+        int n = glossary.size();
+        this.terms = new String[n];
+        int i = 0;
+        for (Map.Pair<String, String> pair : glossary) {
+            this.terms[i] = pair.key();
+            i++;
+        }
+        Arrays.sort(this.terms);
+
+        this.definitions = new String[n];
+        final String[] termKeys = new String[n];
+        Integer[] byKey = new Integer[n];
+        for (i = 0; i < n; i++) {
+            this.definitions[i] = glossary.value(this.terms[i]);
+            termKeys[i] = TermKeys.fold(this.terms[i]);
+            byKey[i] = i;
+        }
+
+        /*
+         * The sort is stable and the terms are already in order, so terms
+         * with the same key stay in term order.
+         */
+        Arrays.sort(byKey, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return termKeys[o1].compareTo(termKeys[o2]);
+            }
+        });
+        this.keys = new String[n];
+        this.keyTerms = new int[n];
+        for (i = 0; i < n; i++) {
+            this.keyTerms[i] = byKey[i];
+            this.keys[i] = termKeys[byKey[i]];
+        }
+        this.linker = linker;
+    }
+
+    /**
+     * Returns the index of the first element of {@code sorted} that is not
+     * less than {@code s}.
+     *
+     * @param sorted
+     *            a sorted array
+     * @param s
+     *            the string to search for
+     * @return the insertion point of {@code s}
+     */
+    private static int lowerBound(String[] sorted, String s) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid].compareTo(s) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the number of terms.
+     *
+     * @return the number of terms
+     */
+    public int size() {
+        return this.terms.length;
+    }
+
+    /**
+     * Returns the definition of {@code term}, or null if it is not a term.
+     *
+     * @param term
+     *            the term, exactly as in the glossary
+     * @return the definition
+     * @requires term is not null
+     */
+    public String definition(String term) {
+        assert term != null : "Violation of: term is not null";
+
+        String definition = null;
+        int i = lowerBound(this.terms, term);
+        if (i < this.terms.length && this.terms[i].equals(term)) {
+            definition = this.definitions[i];
+        }
+        return definition;
+    }
+
+    /**
+     * Returns the term whose key equals the key of {@code text}, ignoring
+     * case and accent encoding, or null if there is none. If several terms
+     * have that key, the first in term order is returned.
+     *
+     * @param text
+     *            the text to look up
+     * @return the matching term
+     * @requires text is not null
+     */
+    public String findIgnoreCase(String text) {
+        assert text != null : "Violation of: text is not null";
+
+        String term = null;
+        String key = TermKeys.fold(text);
+        int i = lowerBound(this.keys, key);
+        if (i < this.keys.length && this.keys[i].equals(key)) {
+            term = this.terms[this.keyTerms[i]];
+        }
+        return term;
+    }
+
+    /**
+     * Returns up to {@code k} terms whose key starts with the key of
+     * {@code prefix}, in order of their keys.
+     *
+     * @param prefix
+     *            the start of the terms, in any case
+     * @param k
+     *            the most terms to return
+     * @return the completions
+     * @requires prefix is not null and k >= 0
+     */
+    public List<String> complete(String prefix, int k) {
+        assert prefix != null : "Violation of: prefix is not null";
+        assert k >= 0 : "Violation of: k >= 0";
+
+        List<String> completions = new ArrayList<>(Math.min(k, 16));
+        String key = TermKeys.fold(prefix);
+        int i = lowerBound(this.keys, key);
+        while (completions.size() < k && i < this.keys.length
+                && this.keys[i].startsWith(key)) {
+            completions.add(this.terms[this.keyTerms[i]]);
+            i++;
+        }
+        return completions;
+    }
+
+    /**
+     * Returns the terms that the definition of {@code term} links to, in the
+     * order they first appear, without repeats.
+     *
+     * @param term
+     *            the term, exactly as in the glossary
+     * @return the terms referenced by its definition; empty if {@code term}
+     *         is not a term
+     * @requires term is not null
+     */
+    public List<String> referencedBy(String term) {
+        assert term != null : "Violation of: term is not null";
+
+        final Set<String> referenced = new LinkedHashSet<>();
+        String definition = this.definition(term);
+        if (definition != null) {
+            this.linker.link(definition, new TermLinker.LinkHandler() {
+                @Override
+                public void text(String source, int start, int end) {
+                }
+
+                @Override
+                public void link(String source, int start, int end, String linked) {
+                    referenced.add(linked);
+                }
+            });
+        }
+        return new ArrayList<>(referenced);
+    }
+
+}
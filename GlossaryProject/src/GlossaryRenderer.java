@@ -0,0 +1,53 @@
+/**
+ * Renders the whole glossary into a single file in some format. The exporter
+ * calls {@link #begin}, then {@link #term} once for every term in alphabetical
+ * order, then {@link #end}, so several renderers can share one pass over the
+ * glossary.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public interface GlossaryRenderer {
+
+    /**
+     * Returns the name of the file this renderer produces, relative to the
+     * output folder.
+     *
+     * @return the file name
+     */
+    String fileName();
+
+    /**
+     * Starts the file.
+     *
+     * @param out
+     *            the file being rendered
+     * @param termCount
+     *            the number of terms that will follow
+     * @updates out
+     */
+    void begin(PageBuffer out, int termCount);
+
+    /**
+     * Renders one term.
+     *
+     * @param out
+     *            the file being rendered
+     * @param term
+     *            the term
+     * @param definition
+     *            the definition of the term and its links
+     * @updates out
+     */
+    void term(PageBuffer out, String term, LinkedDefinition definition);
+
+    /**
+     * Finishes the file.
+     *
+     * @param out
+     *            the file being rendered
+     * @updates out
+     */
+    void end(PageBuffer out);
+
+}
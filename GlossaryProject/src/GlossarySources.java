@@ -0,0 +1,210 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import components.utilities.Reporter;
+
+/**
+ * Input sources for the glossary. A source is a file, "-" for standard input,
+ * or a glob such as "exports/part-*.txt.gz". Gzip data is recognized by its
+ * first bytes, on files and on standard input alike. Every source is read as
+ * a UTF-8 stream of lines, so compressed input is never unpacked to disk.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public final class GlossarySources {
+
+    /**
+     * No argument constructor--private to prevent instantiation.
+     */
+    private GlossarySources() {
+    }
+
+    /**
+     * The source name for standard input.
+     */
+    public static final String STDIN = "-";
+
+    /**
+     * Buffer size for reading and decompressing input.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Reports whether {@code source} is a glob pattern.
+     *
+     * @param source
+     *            the source
+     * @return true if the source contains any of * ? [ {
+     */
+    private static boolean isGlob(String source) {
+        return source.indexOf('*') >= 0 || source.indexOf('?') >= 0
+                || source.indexOf('[') >= 0 || source.indexOf('{') >= 0;
+    }
+
+    /**
+     * Reports whether a stream starts with the gzip magic number, without
+     * consuming anything from it.
+     *
+     * @param in
+     *            the stream, which must support mark and reset
+     * @return true if the stream holds gzip data
+     * @throws IOException
+     *             if the stream cannot be read
+     */
+    private static boolean startsWithGzipMagic(InputStream in) throws IOException {
+        in.mark(2);
+        int first = in.read();
+        int second = in.read();
+        in.reset();
+        return first == (GZIPInputStream.GZIP_MAGIC & 0xFF)
+                && second == (GZIPInputStream.GZIP_MAGIC >>> 8);
+    }
+
+    /**
+     * Reports whether the file {@code source} is gzip-compressed, judging by
+     * its first bytes rather than its name. Standard input is reported as not
+     * compressed; {@link #open} still recognizes gzip data on it.
+     *
+     * @param source
+     *            the source
+     * @return true if the source is a gzip file
+     */
+    public static boolean isCompressed(String source) {
+        boolean compressed = false;
+        if (!source.equals(STDIN)) {
+            try (InputStream in = new BufferedInputStream(
+                    Files.newInputStream(Paths.get(source)), 2)) {
+                compressed = startsWithGzipMagic(in);
+            } catch (IOException e) {
+                Reporter.fatalErrorToConsole("Could not open " + source + ": " + e);
+            }
+        }
+        return compressed;
+    }
+
+    /**
+     * Returns the sources named by {@code specs}, in order. Globs are expanded
+     * to the matching files, sorted by path.
+     *
+     * @param specs
+     *            the sources, files, globs or "-"
+     * @return the list of sources to read
+     * @requires specs is not null
+     * @ensures expand contains no globs
+     */
+    public static List<String> expand(String... specs) {
+        assert specs != null : "Violation of: specs is not null";
+
+        List<String> sources = new ArrayList<>();
+        for (String spec : specs) {
+            String source = spec.trim();
+            if (source.equals("")) {
+                continue;
+            }
+            if (source.equals(STDIN) || !isGlob(source)) {
+                sources.add(source);
+            } else {
+                List<String> matches = expandGlob(source);
+                if (matches.isEmpty()) {
+                    Reporter.fatalErrorToConsole("No files match " + source);
+                }
+                sources.addAll(matches);
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * Returns the files matching {@code glob}, sorted by path. The folders
+     * before the first component with a wildcard are searched.
+     *
+     * @param glob
+     *            the glob pattern
+     * @return the matching files
+     */
+    private static List<String> expandGlob(String glob) {
+        Path pattern = Paths.get(glob);
+        Path base = pattern.getRoot();
+        int i = 0;
+        while (i < pattern.getNameCount() - 1
+                && !isGlob(pattern.getName(i).toString())) {
+            base = base == null ? pattern.getName(i) : base.resolve(pattern.getName(i));
+            i++;
+        }
+        if (base == null) {
+            base = Paths.get("");
+        }
+        Path rest = pattern.subpath(i, pattern.getNameCount());
+        final PathMatcher matcher = FileSystems.getDefault()
+                .getPathMatcher("glob:" + rest.toString());
+        int depth = rest.getNameCount();
+        if (rest.toString().contains("**")) {
+            depth = Integer.MAX_VALUE;
+        }
+
+        List<String> matches = new ArrayList<>();
+        Path searchFrom = base.toString().equals("") ? Paths.get(".") : base;
+        try (Stream<Path> paths = Files.walk(searchFrom, depth)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (Files.isRegularFile(path)
+                        && matcher.matches(searchFrom.relativize(path))) {
+                    matches.add(base.resolve(searchFrom.relativize(path)).toString());
+                }
+            }
+        } catch (IOException e) {
+            Reporter.fatalErrorToConsole("Could not list files for " + glob + ": " + e);
+        }
+        Collections.sort(matches);
+        return matches;
+    }
+
+    /**
+     * Opens {@code source} for reading lines. Gzip data is decompressed as it
+     * is read.
+     *
+     * @param source
+     *            the source, a file or "-"
+     * @return a reader of the source's lines
+     * @requires source is not null or empty
+     * @ensures the caller closes the reader unless source = "-"
+     */
+    public static BufferedReader open(String source) {
+        assert source != null : "Violation of: source is not null";
+        assert !source.equals("") : "Violation of: source is not empty";
+
+        BufferedReader reader = null;
+        try {
+            InputStream in;
+            if (source.equals(STDIN)) {
+                in = new BufferedInputStream(System.in, BUFFER_SIZE);
+            } else {
+                in = new BufferedInputStream(Files.newInputStream(Paths.get(source)),
+                        BUFFER_SIZE);
+            }
+            if (startsWithGzipMagic(in)) {
+                in = new GZIPInputStream(in, BUFFER_SIZE);
+            }
+            reader = new BufferedReader(
+                    new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+        } catch (IOException e) {
+            Reporter.fatalErrorToConsole("Could not open " + source + ": " + e);
+        }
+        return reader;
+    }
+
+}
@@ -0,0 +1,114 @@
+/**
+ * Escapes text for use inside HTML. Text that has nothing to escape is passed
+ * through without copying it.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public final class HtmlEscaper {
+
+    /**
+     * No argument constructor--private to prevent instantiation.
+     */
+    private HtmlEscaper() {
+    }
+
+    /**
+     * Returns the entity for a character that must be escaped in HTML text and
+     * attribute values, or null if the character can be written as is.
+     *
+     * @param c
+     *            the character to check
+     * @return the entity for {@code c}, or null
+     */
+    private static String entity(char c) {
+        String result = null;
+        switch (c) {
+            case '&':
+                result = "&amp;";
+                break;
+            case '<':
+                result = "&lt;";
+                break;
+            case '>':
+                result = "&gt;";
+                break;
+            case '"':
+                result = "&quot;";
+                break;
+            case '\'':
+                result = "&#39;";
+                break;
+            default:
+                break;
+        }
+        return result;
+    }
+
+    /**
+     * Returns {@code text} escaped for HTML. If nothing needs escaping,
+     * {@code text} itself is returned.
+     *
+     * @param text
+     *            the text to escape
+     * @return the escaped text
+     * @requires text is not null
+     * @ensures escape = [text with &, <, >, " and ' replaced by entities]
+     */
+    public static String escape(String text) {
+        assert text != null : "Violation of: text is not null";
+
+        /*
+         * Finds the first character that needs escaping. Most text has none,
+         * in which case no copy is made.
+         */
+        int i = 0;
+        while (i < text.length() && entity(text.charAt(i)) == null) {
+            i++;
+        }
+        if (i == text.length()) {
+            return text;
+        }
+
+        StringBuilder result = new StringBuilder(text.length() + 16);
+        result.append(text, 0, i);
+        appendEscaped(result, text, i, text.length());
+        return result.toString();
+    }
+
+    /**
+     * Appends {@code text[start, end)} to {@code out}, escaped for HTML.
+     * Unescaped runs are appended in one piece, so no intermediate strings are
+     * created.
+     *
+     * @param out
+     *            the builder to append to
+     * @param text
+     *            the text to escape
+     * @param start
+     *            start index in {@code text} (inclusive)
+     * @param end
+     *            end index in {@code text} (exclusive)
+     * @updates out
+     * @requires 0 <= start <= end <= |text|
+     * @ensures out = #out * [text[start, end) escaped for HTML]
+     */
+    public static void appendEscaped(StringBuilder out, CharSequence text, int start,
+            int end) {
+        assert out != null : "Violation of: out is not null";
+        assert text != null : "Violation of: text is not null";
+        assert 0 <= start && start <= end
+                && end <= text.length() : "Violation of: 0 <= start <= end <= |text|";
+
+        int runStart = start;
+        for (int i = start; i < end; i++) {
+            String entity = entity(text.charAt(i));
+            if (entity != null) {
+                out.append(text, runStart, i).append(entity);
+                runStart = i + 1;
+            }
+        }
+        out.append(text, runStart, end);
+    }
+
+}
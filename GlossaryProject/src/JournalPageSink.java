@@ -0,0 +1,59 @@
+/**
+ * Records every page in a {@link CheckpointJournal} once another sink has
+ * written it. The journal is closed with the sink.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public final class JournalPageSink implements PageSink {
+
+    /**
+     * The sink the pages are written by.
+     */
+    private final PageSink delegate;
+
+    /**
+     * The journal the finished pages are recorded in.
+     */
+    private final CheckpointJournal journal;
+
+    /**
+     * Hashes the pages for the journal.
+     */
+    private final ContentHash hasher = new ContentHash();
+
+    /**
+     * Creates a sink recording the pages written by {@code delegate} in
+     * {@code journal}.
+     *
+     * @param delegate
+     *            the sink the pages are written by
+     * @param journal
+     *            the journal
+     * @requires delegate is not null and journal is not null
+     */
+    public JournalPageSink(PageSink delegate, CheckpointJournal journal) {
+        assert delegate != null : "Violation of: delegate is not null";
+        assert journal != null : "Violation of: journal is not null";
+
+        this.delegate = delegate;
+        this.journal = journal;
+    }
+
+    @Override
+    public void write(String path, byte[] content) {
+        assert path != null : "Violation of: path is not null";
+        assert !path.equals("") : "Violation of: path is not empty";
+        assert content != null : "Violation of: content is not null";
+
+        this.delegate.write(path, content);
+        this.journal.record(path, content.length, this.hasher.of(content));
+    }
+
+    @Override
+    public void close() {
+        this.delegate.close();
+        this.journal.close();
+    }
+
+}
@@ -0,0 +1,139 @@
+/**
+ * Renders the glossary as JSON. Each term has its definition, the path of its
+ * HTML page, and its links with their start and end indices (in UTF-16 code
+ * units) in the definition.
+ *
+ * <pre>
+ * {"terms":[
+ * {"term":"book","file":"book.html","definition":"...","links":[
+ *   {"start":2,"end":6,"term":"word"}]},
+ * ...
+ * ]}
+ * </pre>
+ *
+ * @author Caleb Parrott
+ *
+ */
+public final class JsonGlossaryRenderer implements GlossaryRenderer {
+
+    /**
+     * Hex digits used for escapes.
+     */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * The layout the "file" of each term refers to, or null for the one
+     * {@link Main} writes term pages in.
+     */
+    private final OutputLayout layout;
+
+    /**
+     * The layout of the file being rendered.
+     */
+    private OutputLayout pageLayout = OutputLayout.FLAT;
+
+    /**
+     * Whether the next term is the first one.
+     */
+    private boolean first = true;
+
+    /**
+     * Creates a JSON renderer for pages in the layout {@link Main} writes them
+     * in, as set when rendering begins.
+     */
+    public JsonGlossaryRenderer() {
+        this.layout = null;
+    }
+
+    /**
+     * Creates a JSON renderer for pages in {@code layout}.
+     *
+     * @param layout
+     *            the layout of the term pages
+     * @requires layout is not null
+     */
+    public JsonGlossaryRenderer(OutputLayout layout) {
+        assert layout != null : "Violation of: layout is not null";
+
+        this.layout = layout;
+    }
+
+    /**
+     * Appends {@code s} as a JSON string literal.
+     *
+     * @param out
+     *            the builder to append to
+     * @param s
+     *            the string to quote
+     * @updates out
+     */
+    static void appendString(StringBuilder out, String s) {
+        out.append('"');
+        int runStart = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\' || c < ' ' || c == '\u2028' || c == '\u2029') {
+                out.append(s, runStart, i);
+                if (c == '"' || c == '\\') {
+                    out.append('\\').append(c);
+                } else {
+                    out.append("\\u").append(HEX[(c >> 12) & 0xF])
+                            .append(HEX[(c >> 8) & 0xF]).append(HEX[(c >> 4) & 0xF])
+                            .append(HEX[c & 0xF]);
+                }
+                runStart = i + 1;
+            }
+        }
+        out.append(s, runStart, s.length()).append('"');
+    }
+
+    @Override
+    public String fileName() {
+        return "glossary.json";
+    }
+
+    @Override
+    public void begin(PageBuffer out, int termCount) {
+        this.first = true;
+        this.pageLayout = this.layout;
+        if (this.pageLayout == null) {
+            this.pageLayout = Main.outputLayout();
+        }
+        out.println("{\"terms\":[");
+    }
+
+    @Override
+    public void term(PageBuffer out, String term, LinkedDefinition definition) {
+        StringBuilder line = new StringBuilder(definition.definition().length() + 64);
+        if (!this.first) {
+            line.append(',');
+        }
+        this.first = false;
+
+        line.append("{\"term\":");
+        appendString(line, term);
+        line.append(",\"file\":");
+        appendString(line, this.pageLayout.termPagePath(term));
+        line.append(",\"definition\":");
+        appendString(line, definition.definition());
+        line.append(",\"links\":[");
+        for (int i = 0; i < definition.linkCount(); i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            line.append("{\"start\":").append(definition.linkStart(i));
+            line.append(",\"end\":").append(definition.linkEnd(i));
+            line.append(",\"term\":");
+            appendString(line, definition.linkTerm(i));
+            line.append('}');
+        }
+        line.append("]}");
+        out.println(line.toString());
+    }
+
+    @Override
+    public void end(PageBuffer out) {
+        out.println("]}");
+    }
+
+}
@@ -0,0 +1,144 @@
+import java.util.Arrays;
+
+/**
+ * A definition together with the glossary terms found in it. The links are
+ * resolved once and then shared by every renderer.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public final class LinkedDefinition implements TermLinker.LinkHandler {
+
+    /**
+     * Initial capacity of the link arrays.
+     */
+    private static final int INITIAL_CAPACITY = 8;
+
+    /**
+     * The definition.
+     */
+    private String definition = "";
+
+    /**
+     * Number of links.
+     */
+    private int count = 0;
+
+    /**
+     * Start index of each link in the definition.
+     */
+    private int[] starts = new int[INITIAL_CAPACITY];
+
+    /**
+     * End index (exclusive) of each link in the definition.
+     */
+    private int[] ends = new int[INITIAL_CAPACITY];
+
+    /**
+     * The term each link points to.
+     */
+    private String[] terms = new String[INITIAL_CAPACITY];
+
+    /**
+     * Replaces the contents of this with {@code definition} and its links
+     * found by {@code linker}. The arrays are reused, so one instance can be
+     * used for a whole glossary.
+     *
+     * @param linker
+     *            the linker for the glossary
+     * @param newDefinition
+     *            the definition to link
+     * @updates this
+     * @requires linker is not null and newDefinition is not null
+     * @ensures this holds newDefinition and the terms linked in it
+     */
+    public void resolve(TermLinker linker, String newDefinition) {
+        assert linker != null : "Violation of: linker is not null";
+        assert newDefinition != null : "Violation of: newDefinition is not null";
+
+        this.definition = newDefinition;
+        Arrays.fill(this.terms, 0, this.count, null);
+        this.count = 0;
+        linker.link(newDefinition, this);
+    }
+
+    @Override
+    public void text(String source, int start, int end) {
+        // only the links are recorded; the text is whatever lies between them
+    }
+
+    @Override
+    public void link(String source, int start, int end, String term) {
+        if (this.count == this.starts.length) {
+            int capacity = 2 * this.count;
+            this.starts = Arrays.copyOf(this.starts, capacity);
+            this.ends = Arrays.copyOf(this.ends, capacity);
+            this.terms = Arrays.copyOf(this.terms, capacity);
+        }
+        this.starts[this.count] = start;
+        this.ends[this.count] = end;
+        this.terms[this.count] = term;
+        this.count++;
+    }
+
+    /**
+     * Returns the definition.
+     *
+     * @return the definition
+     */
+    public String definition() {
+        return this.definition;
+    }
+
+    /**
+     * Returns the number of links in the definition.
+     *
+     * @return the number of links
+     */
+    public int linkCount() {
+        return this.count;
+    }
+
+    /**
+     * Returns the start index of link {@code i}.
+     *
+     * @param i
+     *            the link number
+     * @return the index in the definition where the link starts
+     * @requires 0 <= i < linkCount()
+     */
+    public int linkStart(int i) {
+        assert 0 <= i && i < this.count : "Violation of: 0 <= i < linkCount()";
+
+        return this.starts[i];
+    }
+
+    /**
+     * Returns the end index (exclusive) of link {@code i}.
+     *
+     * @param i
+     *            the link number
+     * @return the index in the definition where the link ends
+     * @requires 0 <= i < linkCount()
+     */
+    public int linkEnd(int i) {
+        assert 0 <= i && i < this.count : "Violation of: 0 <= i < linkCount()";
+
+        return this.ends[i];
+    }
+
+    /**
+     * Returns the term link {@code i} points to.
+     *
+     * @param i
+     *            the link number
+     * @return the linked term
+     * @requires 0 <= i < linkCount()
+     */
+    public String linkTerm(int i) {
+        assert 0 <= i && i < this.count : "Violation of: 0 <= i < linkCount()";
+
+        return this.terms[i];
+    }
+
+}
@@ -1,4 +1,12 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
 
 import components.map.Map;
 import components.map.Map1L;
@@ -30,6 +38,253 @@ public final class Main {
      */
     private static Map<String, String> glossary = new Map1L<>();
 
+    /**
+     * The ways definition words can be matched against glossary terms.
+     */
+    public enum LinkMode {
+        /**
+         * Whole words only; the longest (multi-word) term at each position is
+         * linked.
+         */
+        WORD_BOUNDARY,
+
+        /**
+         * The original matching: a word is linked if any term is a prefix of
+         * it. Kept for compatibility.
+         */
+        LEGACY_PREFIX
+    }
+
+    /**
+     * How definition words are matched against glossary terms.
+     */
+    private static LinkMode linkMode = LinkMode.WORD_BOUNDARY;
+
+    /**
+     * What to do when a term is read that is already in the glossary.
+     */
+    public enum DuplicatePolicy {
+        /**
+         * Keep the first definition and ignore later ones.
+         */
+        FIRST_WINS,
+
+        /**
+         * Replace the definition with each later one.
+         */
+        LAST_WINS,
+
+        /**
+         * Append each later definition to the first, separated by a space.
+         */
+        CONCATENATE,
+
+        /**
+         * Keep the first definition and record the term, so the duplicates
+         * can be reported after the load.
+         */
+        REPORT
+    }
+
+    /**
+     * What to do when a term is read that is already in the glossary.
+     */
+    private static DuplicatePolicy duplicatePolicy = DuplicatePolicy.REPORT;
+
+    /**
+     * Every repeated term read since the glossary was last cleared, once per
+     * repeat.
+     */
+    private static Queue<String> duplicateTerms = new Queue1L<>();
+
+    /**
+     * Linker for the current glossary terms. Built when first needed and
+     * dropped whenever the glossary is regenerated, cleared or handed out to
+     * be changed.
+     */
+    private static TermLinker linker = null;
+
+    /**
+     * Query index of the glossary. Built when first asked for and dropped,
+     * like {@code linker}, whenever the glossary may change.
+     */
+    private static GlossaryIndex index = null;
+
+    /**
+     * Pages the I/O thread may hold in its queue before rendering has to wait.
+     */
+    private static final int WRITE_QUEUE_CAPACITY = 256;
+
+    /**
+     * Where term pages go in the output folder.
+     */
+    private static OutputLayout outputLayout = OutputLayout.FLAT;
+
+    /**
+     * Smallest part of the input worth parsing on its own thread.
+     */
+    private static final long MIN_PARSE_RANGE_BYTES = 1024 * 1024;
+
+    /**
+     * Number of threads used to parse the input file; 1 parses it
+     * sequentially.
+     */
+    private static int parseParallelism = 1;
+
+    /**
+     * Whether pages are written on a separate I/O thread while the next ones
+     * are rendered.
+     */
+    private static boolean asyncWrites = true;
+
+    /**
+     * Whether pages that match the file already on disk are left alone
+     * instead of being written again.
+     */
+    private static boolean skipUnchanged = false;
+
+    /**
+     * The filter skipping unchanged pages in the current page sink, or null if
+     * unchanged pages are written again.
+     */
+    private static SkipUnchangedPageSink unchangedFilter = null;
+
+    /**
+     * Whether finished pages are recorded in a checkpoint journal and written
+     * atomically.
+     */
+    private static boolean checkpoint = false;
+
+    /**
+     * Whether pages finished by an earlier, interrupted run are skipped.
+     */
+    private static boolean resume = false;
+
+    /**
+     * The checkpoint journal of the current page sink, or null if there is
+     * none.
+     */
+    private static CheckpointJournal journal = null;
+
+    /**
+     * Whether a manifest of the size and hash of every file is written.
+     */
+    private static boolean writeManifest = false;
+
+    /**
+     * URL the output folder is published at, used for the sitemap, or null
+     * for no sitemap.
+     */
+    private static String sitemapBaseUrl = null;
+
+    /**
+     * The manifest and sitemap writer of the current page sink, or null if
+     * there is none.
+     */
+    private static ManifestPageSink manifest = null;
+
+    /**
+     * Whether term pages get a "Related terms" section.
+     */
+    private static boolean relatedTermsEnabled = false;
+
+    /**
+     * File the definition signatures of the related terms are cached in, or
+     * null for no cache.
+     */
+    private static String signatureCache = null;
+
+    /**
+     * The related terms of the pages being generated, or null if term pages
+     * get no "Related terms" section.
+     */
+    private static RelatedTerms relatedTerms = null;
+
+    /**
+     * Punctuation and symbols, removed from words in the legacy link mode.
+     */
+    private static final Pattern PUNCTUATION = Pattern.compile("[\\p{P}\\p{S}]");
+
+    /**
+     * The lines of the CSS shared by all pages. All the CSS for the HTML files
+     * is grouped here for the sake of consistency across pages.
+     */
+    private static final String[] CSS_LINES = {
+            "<style>",
+            "body {",
+            "    background-color: #f0f0f0;",
+            "    font-family: Arial, sans-serif;",
+            "    padding: 20px;",
+            "}",
+            "h1 {",
+            "    color: #333;",
+            "    text-align: center;",
+            "    font-size: 2.5em;",
+            "    margin-bottom: 20px;",
+            "}",
+            "div {",
+            "    border: 2px solid #007BFF;",
+            "    border-radius: 10px;",
+            "    padding: 20px;",
+            "    background-color: #fff;",
+            "    max-width: 800px;",
+            "    margin: 20px auto;",
+            "    box-shadow: 0 4px 8px rgba(0, 0, 0, 0.1);",
+            "}",
+            "a {",
+            "    text-decoration: none;",
+            "    color: #007BFF;",
+            "    font-weight: bold;",
+            "}",
+            "a:hover {",
+            "    text-decoration: underline;",
+            "}",
+            "ul {",
+            "    list-style-type: none;",
+            "    padding: 0;",
+            "}",
+            "li {",
+            "    margin-bottom: 10px;",
+            "}",
+            "ul {",
+            "    list-style: none;",
+            "    padding: 0;",
+            "    display: grid;",
+            "    grid-template-columns: repeat(auto-fill, minmax(150px, 1fr));",
+            "    gap: 10px;",
+            "}",
+            "li {",
+            "    background-color: #e8f0fe;",
+            "    border-radius: 8px;",
+            "    text-align: center;",
+            "    padding: 10px;",
+            "    transition: transform 0.2s;",
+            "}",
+            "li:hover {",
+            "    transform: scale(1.05);",
+            "    background-color: #d1e7ff;",
+            "}",
+            ".button {",
+            "    display: inline-block;",
+            "    padding: 10px 20px;",
+            "    font-size: 1em;",
+            "    color: #fff;",
+            "    background-color: #007BFF;",
+            "    border: none;",
+            "    border-radius: 5px;",
+            "    text-align: center;",
+            "    text-decoration: none;",
+            "    transition: transform 0.2s;",
+            "}",
+            ".button:hover {",
+            "    transform: scale(1.05);",
+            "    background-color: #0056b3;",
+            "}",
+            "* {",
+            "    transition: all 0.2s ease-in-out;",
+            "}",
+            "</style>" };
+
     //---------- TESTING METHODS -----------
 
     /*
@@ -40,12 +295,15 @@ public final class Main {
 
     /**
      * Returns the glossary map. Used for testing only. No test cases for this
-     * method.
+     * method. The caller may change the map, so the linker and index built
+     * for it are dropped.
      *
      * @return The glossary map
      * @ensures /result = glossary
      */
     public static Map<String, String> readGlossaryMap() {
+        linker = null;
+        index = null;
         return glossary;
     }
 
@@ -57,10 +315,307 @@ public final class Main {
      */
     public static void clearGlossaryMap() {
         glossary.clear();
+        duplicateTerms.clear();
+        linker = null;
+        index = null;
     }
 
     //---------- END OF TESTING METHODS ----------
 
+    /**
+     * Returns the repeated terms found since the glossary was last cleared,
+     * once per repeat, in input order.
+     *
+     * @return a copy of the repeated terms
+     * @ensures readDuplicateTerms = duplicateTerms
+     */
+    public static Queue<String> readDuplicateTerms() {
+        Queue<String> copy = new Queue1L<>();
+        for (String term : duplicateTerms) {
+            copy.enqueue(term);
+        }
+        return copy;
+    }
+
+    /**
+     * Sets how definition words are matched against glossary terms.
+     *
+     * @param mode
+     *            the link mode to use
+     * @requires mode is not null
+     * @ensures linkMode = mode
+     */
+    public static void setLinkMode(LinkMode mode) {
+        assert mode != null : "Violation of: mode is not null";
+
+        linkMode = mode;
+    }
+
+    /**
+     * Sets what happens when a term is read that is already in the glossary.
+     *
+     * @param policy
+     *            the duplicate policy to use
+     * @requires policy is not null
+     * @ensures duplicatePolicy = policy
+     */
+    public static void setDuplicatePolicy(DuplicatePolicy policy) {
+        assert policy != null : "Violation of: policy is not null";
+
+        duplicatePolicy = policy;
+    }
+
+    /**
+     * Sets where term pages go in the output folder. The hrefs in the term
+     * pages and the index page follow the layout.
+     *
+     * @param layout
+     *            the output layout
+     * @requires layout is not null
+     * @ensures outputLayout = layout
+     */
+    public static void setOutputLayout(OutputLayout layout) {
+        assert layout != null : "Violation of: layout is not null";
+
+        outputLayout = layout;
+    }
+
+    /**
+     * Returns where term pages go in the output folder.
+     *
+     * @return the output layout
+     * @ensures outputLayout = outputLayout
+     */
+    public static OutputLayout outputLayout() {
+        return outputLayout;
+    }
+
+    /**
+     * Sets the number of threads {@link #generateGlossaryMap} parses the input
+     * file with. With more than one, the file is read as UTF-8 and cut into
+     * byte ranges on record boundaries that are parsed concurrently; the
+     * glossary is the same as with a sequential parse.
+     *
+     * @param threads
+     *            the number of parser threads
+     * @requires threads > 0
+     * @ensures parseParallelism = threads
+     */
+    public static void setParseParallelism(int threads) {
+        assert threads > 0 : "Violation of: threads > 0";
+
+        parseParallelism = threads;
+    }
+
+    /**
+     * Returns an index for looking up the terms of the glossary, building it
+     * if the glossary may have changed since it was last built. The index is a
+     * snapshot and is safe to share between threads.
+     *
+     * @return the query index of the glossary
+     */
+    public static GlossaryIndex glossaryIndex() {
+        if (index == null) {
+            index = new GlossaryIndex(glossary, currentLinker());
+        }
+        return index;
+    }
+
+    /**
+     * Sets whether {@link #generateGlossaryFiles} writes pages on a separate
+     * I/O thread (the default) or on the rendering thread.
+     *
+     * @param async
+     *            true to write pages asynchronously
+     * @ensures asyncWrites = async
+     */
+    public static void setAsyncWrites(boolean async) {
+        asyncWrites = async;
+    }
+
+    /**
+     * Sets whether {@link #generateGlossaryFiles} leaves files alone whose
+     * content would not change, instead of writing every file again.
+     *
+     * @param skip
+     *            true to skip unchanged files
+     * @ensures skipUnchanged = skip
+     */
+    public static void setSkipUnchanged(boolean skip) {
+        skipUnchanged = skip;
+    }
+
+    /**
+     * Sets whether {@link #generateGlossaryFiles} keeps a checkpoint journal
+     * of the pages it has finished, writing each page to a temporary file and
+     * renaming it into place.
+     *
+     * @param enabled
+     *            true to keep the journal
+     * @ensures checkpoint = enabled
+     */
+    public static void setCheckpoint(boolean enabled) {
+        checkpoint = enabled;
+    }
+
+    /**
+     * Sets whether {@link #generateGlossaryFiles} resumes an interrupted run,
+     * skipping the pages its checkpoint journal records as finished. The
+     * journal is only used if it was written for the same glossary and
+     * settings. Resuming also keeps a journal for the run.
+     *
+     * @param resumeRun
+     *            true to resume
+     * @ensures resume = resumeRun
+     */
+    public static void setResume(boolean resumeRun) {
+        resume = resumeRun;
+    }
+
+    /**
+     * Returns a fingerprint of the glossary and of the settings that change
+     * the pages, so a checkpoint journal is only resumed for the same output.
+     *
+     * @return the fingerprint
+     */
+    private static long outputFingerprint() {
+        /*
+         * A SHA-256 digest of the terms and their definitions in sorted order,
+         * so the glossary's iteration order does not matter but moving a
+         * definition to another term does.
+         */
+        String[] terms = new String[glossary.size()];
+        int n = 0;
+        for (Map.Pair<String, String> pair : glossary) {
+            terms[n] = pair.key();
+            n++;
+        }
+        Arrays.sort(terms);
+        MessageDigest digest = ContentHash.sha256();
+        for (String term : terms) {
+            addToDigest(digest, term);
+            addToDigest(digest, glossary.value(term));
+        }
+        addToDigest(digest, outputLayout.name());
+        addToDigest(digest, linkMode.name());
+        addToDigest(digest, String.valueOf(relatedTermsEnabled));
+
+        byte[] hash = digest.digest();
+        long fingerprint = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            fingerprint = (fingerprint << Byte.SIZE) | (hash[i] & 0xFF);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Adds {@code s} to {@code digest}, preceded by its length so that
+     * different sequences of strings never give the same bytes.
+     *
+     * @param digest
+     *            the digest
+     * @param s
+     *            the string to add
+     * @updates digest
+     */
+    private static void addToDigest(MessageDigest digest, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    /**
+     * Sets whether {@link #generateGlossaryFiles} writes manifest.json, the
+     * size and SHA-256 hash of every file it writes.
+     *
+     * @param manifest
+     *            true to write the manifest
+     * @ensures writeManifest = manifest
+     */
+    public static void setManifest(boolean manifest) {
+        writeManifest = manifest;
+    }
+
+    /**
+     * Sets whether {@link #generateGlossaryFiles} writes sitemap.xml, listing
+     * the pages under the URL the output folder is published at.
+     *
+     * @param baseUrl
+     *            URL of the output folder, or null for no sitemap
+     * @ensures sitemapBaseUrl = baseUrl
+     */
+    public static void setSitemap(String baseUrl) {
+        sitemapBaseUrl = baseUrl;
+    }
+
+    /**
+     * Sets whether {@link #generateGlossaryFiles} adds a "Related terms"
+     * section, listing the terms with the most similar definitions, to each
+     * term page.
+     *
+     * @param enabled
+     *            true to add the section
+     * @param cacheFile
+     *            file to keep the definition signatures in between runs, or
+     *            null to compute them all every time
+     * @ensures relatedTermsEnabled = enabled and signatureCache = cacheFile
+     */
+    public static void setRelatedTerms(boolean enabled, String cacheFile) {
+        relatedTermsEnabled = enabled;
+        signatureCache = cacheFile;
+    }
+
+    /**
+     * Opens the sink that {@link #generateGlossaryFiles} and
+     * {@link #exportGlossary} write pages to, as configured.
+     *
+     * @param folderLocation
+     *            The location of the folder to save the files in
+     * @param site
+     *            true for the site pages, false for an export; an export
+     *            leaves the site's journal, manifest and sitemap alone
+     * @return the page sink
+     * @requires folderLocation is not null or empty
+     */
+    private static PageSink openPageSink(String folderLocation, boolean site) {
+        boolean journaled = site && (checkpoint || resume);
+        PageSink sink = new FilePageSink(folderLocation, journaled);
+
+        /*
+         * The comparison with the file on disk is I/O, so the filter sits
+         * behind the queue, on the writer thread.
+         */
+        unchangedFilter = null;
+        if (skipUnchanged) {
+            unchangedFilter = new SkipUnchangedPageSink(folderLocation, sink);
+            sink = unchangedFilter;
+        }
+
+        /*
+         * A page is recorded as finished once it is on disk, or found
+         * unchanged there.
+         */
+        journal = null;
+        if (journaled) {
+            journal = new CheckpointJournal(folderLocation, outputFingerprint(), resume);
+            sink = new JournalPageSink(sink, journal);
+        }
+
+        /*
+         * The manifest and sitemap are built from the pages as they are
+         * written, unchanged ones included, so they describe the whole folder.
+         */
+        manifest = null;
+        if (site && (writeManifest || sitemapBaseUrl != null)) {
+            manifest = new ManifestPageSink(sink, writeManifest, sitemapBaseUrl);
+            sink = manifest;
+        }
+        if (asyncWrites) {
+            sink = new AsyncPageSink(sink, WRITE_QUEUE_CAPACITY);
+        }
+        return sink;
+    }
+
     /**
      * Generates the glossary map from the input file. No test cases for this
      * method.
@@ -75,38 +630,98 @@ public final class Main {
         assert filename != null : "Violation of: filename is not null";
         assert !filename.equals("") : "Violation of: filename is not empty";
 
-        SimpleReader in = new SimpleReader1L(filename);
-        boolean isAtEOS = false;
-
-        /*
-         * Reads the input file unil the end of stream. The first line is the
-         * term.
-         */
-        while (!in.atEOS()) {
-            String termLine = in.nextLine();
-            StringBuilder defLine = new StringBuilder();
+        linker = null;
+        index = null;
 
+        if (parseParallelism > 1) {
             /*
-             * Reads the definition line by line until an empty line is
-             * encountered. The empty line indicates the end of the definition.
+             * Parses byte ranges of the file concurrently; the records still
+             * arrive in file order.
              */
-            String line = in.nextLine();
-            while (!line.equals("") && !isAtEOS) {
-                defLine.append(line).append(" ");
-                if (in.atEOS()) {
-                    isAtEOS = true;
-                } else {
-                    line = in.nextLine();
-                }
-            }
+            ParallelGlossaryParser.parse(filename, parseParallelism,
+                    MIN_PARSE_RANGE_BYTES, glossaryRecordHandler());
+        } else {
+            SimpleReader in = new SimpleReader1L(filename);
+            RecordParser parser = new RecordParser(glossaryRecordHandler());
+
             /*
-             * The definition is trimmed to remove any leading or trailing
-             * spaces and converted to a string, and then is added to the
-             * glossary map.
+             * Reads the input file unil the end of stream. The first line of
+             * each record is the term, and the definition runs until an empty
+             * line.
              */
+            while (!in.atEOS()) {
+                parser.line(in.nextLine());
+            }
+            parser.finish();
+
+            //close the input stream
+            in.close();
+        }
+
+        /*
+         * If glossary map is empty, print an error message and exit the
+         * program.
+         */
+        if (glossary.size() == 0) {
+            Reporter.fatalErrorToConsole(
+                    "EMPTY FILE: No terms found in the input file.");
+        }
+    }
+
+    /**
+     * Generates the glossary map from one or more input sources, read one
+     * after the other. A source is a file, "-" for standard input, or a glob
+     * matching several files; any of them may be gzip-compressed. Everything
+     * is parsed as it streams in; nothing is unpacked to disk.
+     *
+     * @param sources
+     *            The sources to read the inputs from
+     * @requires sources is not null
+     * @ensures glossary.size() > 0 and glossary keys are terms and values are
+     *          associated definitions from all the sources
+     */
+    public static void generateGlossaryMapFromSources(String... sources) {
+        assert sources != null : "Violation of: sources is not null";
+
+        linker = null;
+        index = null;
 
-            String finalDef = defLine.toString().trim();
-            glossary.add(termLine, finalDef);
+        for (String source : GlossarySources.expand(sources)) {
+            if (parseParallelism > 1 && !source.equals(GlossarySources.STDIN)
+                    && !GlossarySources.isCompressed(source)) {
+                /*
+                 * Plain files can still be parsed in parallel.
+                 */
+                ParallelGlossaryParser.parse(source, parseParallelism,
+                        MIN_PARSE_RANGE_BYTES, glossaryRecordHandler());
+            } else {
+                /*
+                 * Each source gets its own parser, so a source that does not
+                 * end with an empty line cannot run into the next one.
+                 */
+                RecordParser parser = new RecordParser(glossaryRecordHandler());
+                BufferedReader in = GlossarySources.open(source);
+                try {
+                    String line = in.readLine();
+                    while (line != null) {
+                        parser.line(line);
+                        line = in.readLine();
+                    }
+                } catch (IOException e) {
+                    Reporter.fatalErrorToConsole("Could not read " + source + ": " + e);
+                }
+                parser.finish();
+
+                //close the input stream, but never standard input
+                if (!source.equals(GlossarySources.STDIN)) {
+                    try {
+                        in.close();
+                    } catch (IOException e) {
+                        Reporter.fatalErrorToConsole(
+                                "Could not close " + source + ": " + e);
+                    }
+                }
+            }
         }
 
         /*
@@ -114,11 +729,45 @@ public final class Main {
          * program.
          */
         if (glossary.size() == 0) {
-            Reporter.fatalErrorToConsole("EMPTY FILE: No terms found in the input file.");
+            Reporter.fatalErrorToConsole("EMPTY INPUT: No terms found in the input.");
         }
+    }
 
-        //close the input stream
-        in.close();
+    /**
+     * Returns a record handler that adds each record to the glossary map.
+     * Repeated terms are detected with the map's hash lookup as they arrive
+     * and handled by the duplicate policy, so the input needs no sorting or
+     * second pass.
+     *
+     * @return the record handler
+     */
+    private static RecordParser.RecordHandler glossaryRecordHandler() {
+        return new RecordParser.RecordHandler() {
+            @Override
+            public void record(String term, String definition) {
+                if (!glossary.hasKey(term)) {
+                    glossary.add(term, definition);
+                } else {
+                    switch (duplicatePolicy) {
+                        case LAST_WINS:
+                            glossary.replaceValue(term, definition);
+                            break;
+                        case CONCATENATE:
+                            if (!definition.equals("")) {
+                                String first = glossary.value(term);
+                                glossary.replaceValue(term, first.equals("")
+                                        ? definition : first + " " + definition);
+                            }
+                            break;
+                        case REPORT:
+                            duplicateTerms.enqueue(term);
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+        };
     }
 
     /**
@@ -141,15 +790,42 @@ public final class Main {
     public static void generateTermPage(String term, String definition,
             String folderLocation, SimpleWriter consoleOut) {
 
+        assert folderLocation != null : "Violation of: folderLocation is not null";
+        assert !folderLocation.equals("") : "Violation of: folderLocation is not empty";
+
+        PageSink sink = new FilePageSink(folderLocation);
+        generateTermPage(term, definition, sink, consoleOut);
+        sink.close();
+    }
+
+    /**
+     * Renders the HTML page for a term and hands it to {@code sink}.
+     *
+     * @param term
+     *            The term to generate the page for
+     * @param definition
+     *            The definition of the term
+     * @param sink
+     *            Where the page is written
+     * @param consoleOut
+     *            The output stream
+     * @updates consoleOut.contents
+     * @requires term is not null or empty, definition is not null or empty,
+     *           sink is open, and ConsoleOut.is_open.
+     * @ensures the page for the term is written to sink
+     */
+    public static void generateTermPage(String term, String definition, PageSink sink,
+            SimpleWriter consoleOut) {
+
         assert term != null : "Violation of: term is not null";
         assert !term.equals("") : "Violation of: term is not empty";
         assert definition != null : "Violation of: definition is not null";
         assert !definition.equals("") : "Violation of: definition is not empty";
-        assert folderLocation != null : "Violation of: folderLocation is not null";
-        assert !folderLocation.equals("") : "Violation of: folderLocation is not empty";
+        assert sink != null : "Violation of: sink is not null";
 
-        String filename = term + ".html";
-        SimpleWriter out = new SimpleWriter1L(folderLocation + "/" + filename);
+        String filename = outputLayout.termPagePath(term);
+        String escapedTerm = HtmlEscaper.escape(term);
+        PageBuffer out = new PageBuffer();
 
         consoleOut.print("Generating " + filename);
 
@@ -159,7 +835,7 @@ public final class Main {
          */
         out.println("<html>");
         out.println("<head>");
-        out.println("<title>" + term + "</title>");
+        out.println("<title>" + escapedTerm + "</title>");
 
         /*
          * Writes the CSS for the HTML file.
@@ -172,9 +848,10 @@ public final class Main {
         out.println("</head>");
         out.println("<body>");
         out.println("<div>");
-        out.println("<a href=\"index.html\" class=\"button\">Return to Index</a>");
+        out.println("<a href=\"" + outputLayout.indexHrefFromTermPage()
+                + "\" class=\"button\">Return to Index</a>");
         out.println("<h1 style=\"color: red; font-weight: bold; font-style: italic;\">"
-                + term + "</h1>");
+                + escapedTerm + "</h1>");
         out.println("</div>");
 
         /*
@@ -184,9 +861,27 @@ public final class Main {
         out.println("<div style=\"margin-top: 20px;\">");
         out.println("<p>" + checkDefinitionLinks(definition) + "</p>");
         out.println("</div>");
+
+        /*
+         * Prints the related terms, if any were found.
+         */
+        if (relatedTerms != null) {
+            List<String> related = relatedTerms.relatedTo(term);
+            if (!related.isEmpty()) {
+                out.println("<div style=\"margin-top: 20px;\">");
+                out.println("<h2>Related terms</h2>");
+                out.println("<ul>");
+                for (String other : related) {
+                    out.println("<a href=\"" + outputLayout.termHrefFromTermPage(other)
+                            + "\"><li>" + HtmlEscaper.escape(other) + "</li></a>");
+                }
+                out.println("</ul>");
+                out.println("</div>");
+            }
+        }
         out.println("</body>");
         out.println("</html>");
-        out.close();
+        sink.write(filename, out.toBytes());
         consoleOut.println("...done.");
 
     }
@@ -208,8 +903,79 @@ public final class Main {
         assert definition != null : "Violation of: definition is not null";
         assert !definition.equals("") : "Violation of: definition is not empty";
 
+        if (linkMode == LinkMode.LEGACY_PREFIX) {
+            return checkDefinitionLinksLegacy(definition);
+        }
+
+        TermLinker termLinker = currentLinker();
+
+        /*
+         * Copies the definition escaped for HTML, wrapping each matched term in
+         * a link to its page.
+         */
+        final StringBuilder definitionToPrint = new StringBuilder(
+                definition.length() + definition.length() / 2);
+        termLinker.link(definition, new TermLinker.LinkHandler() {
+            @Override
+            public void text(String source, int start, int end) {
+                HtmlEscaper.appendEscaped(definitionToPrint, source, start, end);
+            }
+
+            @Override
+            public void link(String source, int start, int end, String term) {
+                definitionToPrint.append("<a href=\"")
+                        .append(outputLayout.termHrefFromTermPage(term)).append("\">");
+                HtmlEscaper.appendEscaped(definitionToPrint, source, start, end);
+                definitionToPrint.append("</a>");
+            }
+        });
+
+        //return definition with links, removing any trailing spaces
+        return definitionToPrint.toString().trim();
+    }
+
+    /**
+     * Returns the linker for the current glossary terms, building it if it
+     * was dropped since it was last built.
+     *
+     * @return the linker for the glossary
+     */
+    private static TermLinker currentLinker() {
+        if (linker == null) {
+            linker = new TermLinker(glossary);
+        }
+        return linker;
+    }
+
+    /**
+     * The original version of {@link #checkDefinitionLinks(String)}. A word is
+     * linked if any glossary term is a prefix of it, with its punctuation
+     * removed.
+     *
+     * @param definition
+     *            The definition to check
+     * @return The definition with links where necessary
+     * @requires definition is not null or empty
+     * @ensures definition word that match glossary terms are replaced with
+     *          links
+     */
+    private static String checkDefinitionLinksLegacy(String definition) {
+
         StringBuilder definitionToPrint = new StringBuilder();
 
+        /*
+         * Folds each term once, keeping the glossary's order, rather than once
+         * per word of the definition.
+         */
+        String[] terms = new String[glossary.size()];
+        String[] keys = new String[glossary.size()];
+        int n = 0;
+        for (Map.Pair<String, String> pair : glossary) {
+            terms[n] = pair.key();
+            keys[n] = TermKeys.fold(pair.key());
+            n++;
+        }
+
         /*
          * Splits the definition into words and iterates over each word. Removes
          * all punctuation and makes the word lowercase for the case of
@@ -217,8 +983,8 @@ public final class Main {
          */
         String[] words = definition.split(" ");
         for (String word : words) {
-            String wordWithoutPunctuation = word.replaceAll("\\p{Punct}", "")
-                    .toLowerCase();
+            String wordWithoutPunctuation = TermKeys
+                    .fold(PUNCTUATION.matcher(word).replaceAll(""));
 
             /*
              * Cheks if the word is in the glossary map. If the first part of
@@ -226,17 +992,18 @@ public final class Main {
              * definition.
              */
             boolean isFound = false;
-            for (Map.Pair<String, String> pair : glossary) {
-                String key = pair.key().toLowerCase();
-                if (wordWithoutPunctuation.startsWith(key) && !isFound) {
-                    definitionToPrint.append("<a href=\"").append(pair.key())
-                            .append(".html\">").append(word).append("</a> ");
+            for (int i = 0; i < keys.length && !isFound; i++) {
+                if (wordWithoutPunctuation.startsWith(keys[i])) {
+                    definitionToPrint.append("<a href=\"")
+                            .append(outputLayout.termHrefFromTermPage(terms[i]))
+                            .append("\">")
+                            .append(HtmlEscaper.escape(word)).append("</a> ");
                     isFound = true;
                 }
             }
             // If the word is not in the glossary, just append it
             if (!isFound) {
-                definitionToPrint.append(word).append(" ");
+                definitionToPrint.append(HtmlEscaper.escape(word)).append(" ");
             }
         }
         //return definition with links, removing any trailing spaces
@@ -252,11 +1019,29 @@ public final class Main {
      * @ensures index.html is created in the specified folder
      */
     public static void generateIndexPage(String folderLocation) {
-        SimpleWriter out = new SimpleWriter1L(folderLocation + "/index.html");
 
         assert folderLocation != null : "Violation of: folderLocation is not null";
         assert !folderLocation.equals("") : "Violation of: folderLocation is not empty";
 
+        PageSink sink = new FilePageSink(folderLocation);
+        generateIndexPage(sink);
+        sink.close();
+    }
+
+    /**
+     * Renders the index page for the glossary and hands it to {@code sink}.
+     *
+     * @param sink
+     *            Where the page is written
+     * @requires sink is open
+     * @ensures index.html is written to sink
+     */
+    public static void generateIndexPage(PageSink sink) {
+
+        assert sink != null : "Violation of: sink is not null";
+
+        PageBuffer out = new PageBuffer();
+
         /*
          * Prints the header for the index page. The header includes the title.
          */
@@ -300,7 +1085,8 @@ public final class Main {
         // Iterate over the queue and print the terms
         while (orderedTerms.length() != 0) {
             String term = orderedTerms.dequeue();
-            out.println("<a href=\"" + term + ".html\"><li>" + term + "</li></a>");
+            out.println("<a href=\"" + outputLayout.termHref(term) + "\"><li>"
+                    + HtmlEscaper.escape(term) + "</li></a>");
         }
 
         /*
@@ -310,7 +1096,7 @@ public final class Main {
         out.println("</div>");
         out.println("</body>");
         out.println("</html>");
-        out.close();
+        sink.write("index.html", out.toBytes());
     }
 
     /**
@@ -324,84 +1110,25 @@ public final class Main {
      */
     public static void writeCSS(SimpleWriter out) {
 
-        /*
-         * "All the CSS for the HTML files is written here. The CSS is all
-         * grouped in one method for the sake of consitency across pages.
-         */
-        out.println("<style>");
-        out.println("body {");
-        out.println("    background-color: #f0f0f0;");
-        out.println("    font-family: Arial, sans-serif;");
-        out.println("    padding: 20px;");
-        out.println("}");
-        out.println("h1 {");
-        out.println("    color: #333;");
-        out.println("    text-align: center;");
-        out.println("    font-size: 2.5em;");
-        out.println("    margin-bottom: 20px;");
-        out.println("}");
-        out.println("div {");
-        out.println("    border: 2px solid #007BFF;");
-        out.println("    border-radius: 10px;");
-        out.println("    padding: 20px;");
-        out.println("    background-color: #fff;");
-        out.println("    max-width: 800px;");
-        out.println("    margin: 20px auto;");
-        out.println("    box-shadow: 0 4px 8px rgba(0, 0, 0, 0.1);");
-        out.println("}");
-        out.println("a {");
-        out.println("    text-decoration: none;");
-        out.println("    color: #007BFF;");
-        out.println("    font-weight: bold;");
-        out.println("}");
-        out.println("a:hover {");
-        out.println("    text-decoration: underline;");
-        out.println("}");
-        out.println("ul {");
-        out.println("    list-style-type: none;");
-        out.println("    padding: 0;");
-        out.println("}");
-        out.println("li {");
-        out.println("    margin-bottom: 10px;");
-        out.println("}");
-        out.println("ul {");
-        out.println("    list-style: none;");
-        out.println("    padding: 0;");
-        out.println("    display: grid;");
-        out.println("    grid-template-columns: repeat(auto-fill, minmax(150px, 1fr));");
-        out.println("    gap: 10px;");
-        out.println("}");
-        out.println("li {");
-        out.println("    background-color: #e8f0fe;");
-        out.println("    border-radius: 8px;");
-        out.println("    text-align: center;");
-        out.println("    padding: 10px;");
-        out.println("    transition: transform 0.2s;");
-        out.println("}");
-        out.println("li:hover {");
-        out.println("    transform: scale(1.05);");
-        out.println("    background-color: #d1e7ff;");
-        out.println("}");
-        out.println(".button {");
-        out.println("    display: inline-block;");
-        out.println("    padding: 10px 20px;");
-        out.println("    font-size: 1em;");
-        out.println("    color: #fff;");
-        out.println("    background-color: #007BFF;");
-        out.println("    border: none;");
-        out.println("    border-radius: 5px;");
-        out.println("    text-align: center;");
-        out.println("    text-decoration: none;");
-        out.println("    transition: transform 0.2s;");
-        out.println("}");
-        out.println(".button:hover {");
-        out.println("    transform: scale(1.05);");
-        out.println("    background-color: #0056b3;");
-        out.println("}");
-        out.println("* {");
-        out.println("    transition: all 0.2s ease-in-out;");
-        out.println("}");
-        out.println("</style>");
+        PageBuffer css = new PageBuffer();
+        writeCSS(css);
+        out.print(css.toString());
+
+    }
+
+    /**
+     * Writes the CSS for the HTML files into a page buffer.
+     *
+     * @param out
+     *            The page being rendered
+     * @updates out
+     * @ensures out = #out * [CSS script]
+     */
+    public static void writeCSS(PageBuffer out) {
+
+        for (String line : CSS_LINES) {
+            out.println(line);
+        }
 
     }
 
@@ -422,50 +1149,225 @@ public final class Main {
         assert folderLocation != null : "Violation of: folderLocation is not null";
         assert !folderLocation.equals("") : "Violation of: folderLocation is not empty";
 
-        consoleOut.print("Generating index.html...");
-
         /*
-         * Generates the index page. The index page is the main page of the
-         * glossary and contains links to all the terms.
+         * Pages are rendered here and written by the sink, which may do the
+         * writing on its own thread.
          */
-        generateIndexPage(folderLocation);
+        PageSink sink = openPageSink(folderLocation, true);
+        boolean rendered = false;
+        int resumed = 0;
+        try {
+            consoleOut.print("Generating index.html...");
 
-        consoleOut.println("done.");
+            /*
+             * Generates the index page. The index page is the main page of the
+             * glossary and contains links to all the terms.
+             */
+            generateIndexPage(sink);
 
-        consoleOut.println("Generating glossary files...");
+            consoleOut.println("done.");
 
-        /*
-         * Iterates over the glossary map and generates a file for each term.
-         */
-        for (Map.Pair<String, String> pair : glossary) {
-            String term = pair.key();
-            String definition = pair.value();
-            generateTermPage(term, definition, folderLocation, consoleOut);
+            if (relatedTermsEnabled) {
+                consoleOut.print("Finding related terms...");
+                relatedTerms = RelatedTerms.compute(glossary, signatureCache);
+                consoleOut.println("done.");
+            }
+
+            consoleOut.println("Generating glossary files...");
+
+            /*
+             * Iterates over the glossary map and generates a file for each term.
+             */
+            for (Map.Pair<String, String> pair : glossary) {
+                String term = pair.key();
+                String definition = pair.value();
+                String path = outputLayout.termPagePath(term);
+                if (journal != null && journal.isComplete(path)) {
+                    /*
+                     * The page is left as it is; only the manifest and
+                     * sitemap, which list every page, need to know of it.
+                     */
+                    resumed++;
+                    if (manifest != null) {
+                        manifest.addExisting(path, journal.recordedSize(path),
+                                journal.recordedHash(path));
+                    }
+                } else {
+                    generateTermPage(term, definition, sink, consoleOut);
+                }
+            }
+            rendered = true;
+        } finally {
+            /*
+             * Waits for any pages still queued to be written. The sink is
+             * closed even if rendering failed, so its writer thread stops.
+             */
+            relatedTerms = null;
+            if (rendered) {
+                sink.close();
+            } else {
+                closeAfterFailure(sink);
+            }
         }
 
+        if (unchangedFilter != null) {
+            consoleOut.println(unchangedFilter.writtenCount() + " files changed, "
+                    + unchangedFilter.skippedCount() + " unchanged files skipped.");
+        }
+        if (resumed > 0) {
+            consoleOut.println(resumed + " pages finished by an earlier run skipped.");
+        }
+        journal = null;
+        manifest = null;
         consoleOut.println("All files written.");
 
     }
 
+    /**
+     * Exports the glossary in the given formats, all in one pass over the
+     * terms. Links are found the same way as for the term pages.
+     *
+     * @param folderLocation
+     *            The location of the folder to save the files in
+     * @param renderers
+     *            The formats to export, e.g. {@link JsonGlossaryRenderer},
+     *            {@link MarkdownGlossaryRenderer} and
+     *            {@link SinglePageHtmlRenderer}
+     * @requires folderLocation is not null or empty, and renderers is not null
+     * @ensures one file per renderer is created in the specified folder
+     */
+    public static void exportGlossary(String folderLocation,
+            GlossaryRenderer... renderers) {
+
+        assert folderLocation != null : "Violation of: folderLocation is not null";
+        assert !folderLocation.equals("") : "Violation of: folderLocation is not empty";
+        assert renderers != null : "Violation of: renderers is not null";
+
+        PageSink sink = openPageSink(folderLocation, false);
+        boolean exported = false;
+        try {
+            GlossaryExporter.export(glossary, currentLinker(), renderers, sink);
+            exported = true;
+        } finally {
+            if (exported) {
+                sink.close();
+            } else {
+                closeAfterFailure(sink);
+            }
+        }
+    }
+
+    /**
+     * Closes {@code sink} after rendering failed part way. An error from the
+     * sink itself is dropped, so the rendering failure is the one reported.
+     *
+     * @param sink
+     *            the sink to close
+     */
+    private static void closeAfterFailure(PageSink sink) {
+        try {
+            sink.close();
+        } catch (RuntimeException e) {
+            // the rendering failure is already on its way to the caller
+        }
+    }
+
+    /**
+     * Sets the mode named by the command line option {@code option}: one of
+     * "--checkpoint", "--resume", "--skip-unchanged", "--manifest",
+     * "--sitemap=URL" and "--layout=flat" or "--layout=sharded".
+     *
+     * @param option
+     *            the option
+     * @requires option is one of the options above
+     */
+    static void applyOption(String option) {
+        final String sitemap = "--sitemap=";
+        final String layout = "--layout=";
+        if (option.equals("--checkpoint")) {
+            setCheckpoint(true);
+        } else if (option.equals("--resume")) {
+            setResume(true);
+        } else if (option.equals("--skip-unchanged")) {
+            setSkipUnchanged(true);
+        } else if (option.equals("--manifest")) {
+            setManifest(true);
+        } else if (option.startsWith(sitemap) && option.length() > sitemap.length()) {
+            setSitemap(option.substring(sitemap.length()));
+        } else if (option.equals(layout + "flat")) {
+            setOutputLayout(OutputLayout.FLAT);
+        } else if (option.equals(layout + "sharded")) {
+            setOutputLayout(OutputLayout.SHARDED);
+        } else {
+            Reporter.fatalErrorToConsole("Unknown option " + option + ". Options are "
+                    + "--checkpoint, --resume, --skip-unchanged, --manifest, "
+                    + "--sitemap=URL and --layout=flat|sharded.");
+        }
+    }
+
     /**
      * Main method.
      *
      * @param args
-     *            the command line arguments
+     *            the command line arguments: options (see
+     *            {@link #applyOption}), then optionally one or more input
+     *            sources followed by the output folder
      */
     public static void main(String[] args) {
-        SimpleReader in = new SimpleReader1L();
         SimpleWriter out = new SimpleWriter1L();
 
         /*
-         * Prompt the user for the input file and the folder location to save
-         * the files in.
+         * Options come first and start with "--"; a lone "--" ends them.
          */
-        out.print("Enter the name of the input file: ");
-        String inputFile = in.nextLine();
+        int first = 0;
+        boolean options = true;
+        while (options && first < args.length && args[first].startsWith("--")) {
+            options = !args[first].equals("--");
+            if (options) {
+                applyOption(args[first]);
+            }
+            first++;
+        }
+        String[] operands = Arrays.copyOfRange(args, first, args.length);
 
-        out.print("Enter the location of the folder to save the files in: ");
-        String folderLocation = in.nextLine();
+        String[] sources;
+        String folderLocation;
+        if (operands.length >= 2) {
+            /*
+             * Sources and folder given on the command line, so standard input
+             * is free to be used as a source ("-").
+             */
+            sources = new String[operands.length - 1];
+            System.arraycopy(operands, 0, sources, 0, sources.length);
+            folderLocation = operands[operands.length - 1];
+        } else {
+            /*
+             * Prompt the user for the input file and the folder location to
+             * save the files in. Several sources can be given separated by
+             * commas.
+             */
+            SimpleReader in = new SimpleReader1L();
+            out.print("Enter the name of the input file: ");
+            String inputFile = in.nextLine();
+            sources = inputFile.split(",(?![^{]*\\})");
+            for (String source : sources) {
+                /*
+                 * Standard input is where these answers come from, so it
+                 * cannot also hold the glossary.
+                 */
+                if (source.trim().equals(GlossarySources.STDIN)) {
+                    in.close();
+                    out.close();
+                    Reporter.fatalErrorToConsole("\"" + GlossarySources.STDIN
+                            + "\" (standard input) can only be a source when the "
+                            + "sources and folder are given on the command line.");
+                }
+            }
+
+            out.print("Enter the location of the folder to save the files in: ");
+            folderLocation = in.nextLine();
+            in.close();
+        }
 
         out.println("Generating files...");
 
@@ -474,15 +1376,17 @@ public final class Main {
          * definition is the key and the term is the value. Using that glosssry
          * map the HTML pages are written.
          */
-        generateGlossaryMap(inputFile);
+        generateGlossaryMapFromSources(sources);
+        for (String term : duplicateTerms) {
+            out.println("Duplicate term \"" + term + "\": kept its first definition.");
+        }
         generateGlossaryFiles(folderLocation, out);
 
         out.println("Now quitting...");
 
         /*
-         * Close input and output streams
+         * Close the output stream
          */
-        in.close();
         out.close();
     }
 
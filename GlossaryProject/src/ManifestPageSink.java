@@ -0,0 +1,262 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Records the size and SHA-256 hash of every file passed on to another sink
+ * and, when the sink is closed, writes a manifest of them and a sitemap of the
+ * HTML pages. Both are built from the bytes as they are written, so the output
+ * folder never has to be read again to publish it.
+ *
+ * <p>
+ * The manifest is "manifest.json", one entry per file sorted by path, with the
+ * hash that can serve as its ETag. The sitemap is "sitemap.xml"; past 50,000
+ * URLs it is split into "sitemap-1.xml", "sitemap-2.xml", ... and
+ * "sitemap.xml" becomes the index of those files.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public final class ManifestPageSink implements PageSink {
+
+    /**
+     * Most URLs allowed in one sitemap file.
+     */
+    static final int MAX_SITEMAP_URLS = 50000;
+
+    /**
+     * XML namespace of sitemap files.
+     */
+    private static final String SITEMAP_NAMESPACE =
+            "http://www.sitemaps.org/schemas/sitemap/0.9";
+
+    /**
+     * A file passed on to the delegate.
+     */
+    private static final class Entry {
+
+        /**
+         * Path of the file, relative to the output folder.
+         */
+        private final String path;
+
+        /**
+         * Size of the file in bytes.
+         */
+        private final long size;
+
+        /**
+         * SHA-256 hash of the file, in hexadecimal.
+         */
+        private final String hash;
+
+        /**
+         * Creates an entry.
+         *
+         * @param path
+         *            path of the file
+         * @param size
+         *            size of the file
+         * @param hash
+         *            hash of the file
+         */
+        private Entry(String path, long size, String hash) {
+            this.path = path;
+            this.size = size;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * The sink the files are passed to.
+     */
+    private final PageSink delegate;
+
+    /**
+     * Whether manifest.json is written.
+     */
+    private final boolean writeManifest;
+
+    /**
+     * URL of the output folder, ending in '/', or null for no sitemap.
+     */
+    private final String baseUrl;
+
+    /**
+     * Hashes the files.
+     */
+    private final ContentHash hasher = new ContentHash();
+
+    /**
+     * The files written so far.
+     */
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * Creates a sink that records the files passed on to {@code delegate}.
+     *
+     * @param delegate
+     *            the sink the files are passed to
+     * @param writeManifest
+     *            whether to write manifest.json
+     * @param baseUrl
+     *            URL the output folder is published at, or null for no
+     *            sitemap
+     * @requires delegate is not null
+     */
+    public ManifestPageSink(PageSink delegate, boolean writeManifest, String baseUrl) {
+        assert delegate != null : "Violation of: delegate is not null";
+
+        this.delegate = delegate;
+        this.writeManifest = writeManifest;
+        if (baseUrl == null || baseUrl.endsWith("/")) {
+            this.baseUrl = baseUrl;
+        } else {
+            this.baseUrl = baseUrl + "/";
+        }
+    }
+
+    @Override
+    public void write(String path, byte[] content) {
+        assert path != null : "Violation of: path is not null";
+        assert !path.equals("") : "Violation of: path is not empty";
+        assert content != null : "Violation of: content is not null";
+
+        Entry entry = new Entry(path, content.length, this.hasher.of(content));
+        synchronized (this.entries) {
+            this.entries.add(entry);
+        }
+        this.delegate.write(path, content);
+    }
+
+    /**
+     * Adds a file that is already in the output folder, such as a page a
+     * resumed run kept from an earlier one, without passing it on. It may be
+     * called from another thread than {@link #write}.
+     *
+     * @param path
+     *            path of the file, relative to the output folder
+     * @param size
+     *            size of the file in bytes
+     * @param hash
+     *            SHA-256 hash of the file, in hexadecimal
+     * @requires path is not null or empty, and hash is not null
+     */
+    public void addExisting(String path, long size, String hash) {
+        assert path != null : "Violation of: path is not null";
+        assert !path.equals("") : "Violation of: path is not empty";
+        assert hash != null : "Violation of: hash is not null";
+
+        synchronized (this.entries) {
+            this.entries.add(new Entry(path, size, hash));
+        }
+    }
+
+    /**
+     * Returns the URL of the file at {@code path}, escaped for XML.
+     *
+     * @param path
+     *            path of the file, relative to the output folder
+     * @return the URL
+     */
+    private String url(String path) {
+        return HtmlEscaper.escape(this.baseUrl + path.replace(" ", "%20"));
+    }
+
+    /**
+     * Writes the sitemap of the HTML pages, split into several files if they
+     * have too many URLs.
+     */
+    private void writeSitemap() {
+        List<String> pages = new ArrayList<>();
+        for (Entry entry : this.entries) {
+            if (entry.path.endsWith(".html")) {
+                pages.add(entry.path);
+            }
+        }
+
+        int fileCount = (pages.size() + MAX_SITEMAP_URLS - 1) / MAX_SITEMAP_URLS;
+        if (fileCount <= 1) {
+            this.writeUrlSet("sitemap.xml", pages);
+        } else {
+            PageBuffer index = new PageBuffer();
+            index.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+            index.println("<sitemapindex xmlns=\"" + SITEMAP_NAMESPACE + "\">");
+            for (int i = 0; i < fileCount; i++) {
+                String name = "sitemap-" + (i + 1) + ".xml";
+                int end = Math.min(pages.size(), (i + 1) * MAX_SITEMAP_URLS);
+                this.writeUrlSet(name, pages.subList(i * MAX_SITEMAP_URLS, end));
+                index.println("<sitemap><loc>" + this.url(name) + "</loc></sitemap>");
+            }
+            index.println("</sitemapindex>");
+            this.write("sitemap.xml", index.toBytes());
+        }
+    }
+
+    /**
+     * Writes one sitemap file listing {@code pages}.
+     *
+     * @param name
+     *            name of the sitemap file
+     * @param pages
+     *            paths of the pages
+     */
+    private void writeUrlSet(String name, List<String> pages) {
+        PageBuffer out = new PageBuffer();
+        out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        out.println("<urlset xmlns=\"" + SITEMAP_NAMESPACE + "\">");
+        for (String page : pages) {
+            out.println("<url><loc>" + this.url(page) + "</loc></url>");
+        }
+        out.println("</urlset>");
+        this.write(name, out.toBytes());
+    }
+
+    /**
+     * Writes the manifest of every file written, sorted by path.
+     */
+    private void writeManifest() {
+        Collections.sort(this.entries, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry o1, Entry o2) {
+                return o1.path.compareTo(o2.path);
+            }
+        });
+
+        StringBuilder line = new StringBuilder();
+        PageBuffer out = new PageBuffer();
+        out.println("{");
+        out.println("  \"files\": [");
+        for (int i = 0; i < this.entries.size(); i++) {
+            Entry entry = this.entries.get(i);
+            line.setLength(0);
+            line.append("    {\"path\": ");
+            JsonGlossaryRenderer.appendString(line, entry.path);
+            line.append(", \"size\": ").append(entry.size);
+            line.append(", \"sha256\": \"").append(entry.hash).append("\"}");
+            if (i < this.entries.size() - 1) {
+                line.append(',');
+            }
+            out.println(line.toString());
+        }
+        out.println("  ]");
+        out.println("}");
+        this.delegate.write("manifest.json", out.toBytes());
+    }
+
+    @Override
+    public void close() {
+        synchronized (this.entries) {
+            if (this.baseUrl != null) {
+                this.writeSitemap();
+            }
+            if (this.writeManifest) {
+                this.writeManifest();
+            }
+        }
+        this.delegate.close();
+    }
+
+}
@@ -0,0 +1,78 @@
+/**
+ * Renders the glossary as one Markdown document. Every term gets a heading
+ * with an explicit anchor, and linked terms point to those anchors.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public final class MarkdownGlossaryRenderer implements GlossaryRenderer {
+
+    /**
+     * Appends {@code s[start, end)} with Markdown's special characters
+     * escaped.
+     *
+     * @param out
+     *            the builder to append to
+     * @param s
+     *            the text to escape
+     * @param start
+     *            start index (inclusive)
+     * @param end
+     *            end index (exclusive)
+     * @updates out
+     */
+    private static void appendEscaped(StringBuilder out, String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if ("\\`*_[]<>#|".indexOf(c) >= 0) {
+                out.append('\\');
+            }
+            out.append(c);
+        }
+    }
+
+    @Override
+    public String fileName() {
+        return "glossary.md";
+    }
+
+    @Override
+    public void begin(PageBuffer out, int termCount) {
+        out.println("# Glossary");
+        out.println("");
+    }
+
+    @Override
+    public void term(PageBuffer out, String term, LinkedDefinition definition) {
+        StringBuilder text = new StringBuilder(term.length() + 32);
+        text.append("<a id=\"").append(TermFilenames.anchor(term)).append("\"></a>");
+        out.println(text.toString());
+
+        text.setLength(0);
+        text.append("## ");
+        appendEscaped(text, term, 0, term.length());
+        out.println(text.toString());
+        out.println("");
+
+        String def = definition.definition();
+        text.setLength(0);
+        int pos = 0;
+        for (int i = 0; i < definition.linkCount(); i++) {
+            appendEscaped(text, def, pos, definition.linkStart(i));
+            text.append('[');
+            appendEscaped(text, def, definition.linkStart(i), definition.linkEnd(i));
+            text.append("](#").append(TermFilenames.anchor(definition.linkTerm(i)))
+                    .append(')');
+            pos = definition.linkEnd(i);
+        }
+        appendEscaped(text, def, pos, def.length());
+        out.println(text.toString());
+        out.println("");
+    }
+
+    @Override
+    public void end(PageBuffer out) {
+        // nothing follows the last term
+    }
+
+}
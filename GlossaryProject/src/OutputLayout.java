@@ -0,0 +1,113 @@
+/**
+ * Where term pages go in the output folder, and the hrefs that lead to them.
+ * Every term page is at the same depth, so each href is computed from the
+ * term alone, in constant time.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public enum OutputLayout {
+
+    /**
+     * Every page directly in the output folder, e.g. "term.html".
+     */
+    FLAT {
+        @Override
+        public String termPagePath(String term) {
+            return TermFilenames.encode(term) + ".html";
+        }
+
+        @Override
+        public String pathToRoot() {
+            return "";
+        }
+    },
+
+    /**
+     * Term pages spread over two levels of folders picked by a hash of the
+     * term, e.g. "3f/a0/term.html". With 65,536 folders, a million terms
+     * leave about fifteen pages per folder, which keeps lookups and creates
+     * fast on large or network file systems. index.html stays at the top.
+     */
+    SHARDED {
+        @Override
+        public String termPagePath(String term) {
+            String name = TermFilenames.encode(term);
+            long hash = TermFilenames.hash(term);
+            char[] path = new char[6 + name.length() + 5];
+            path[0] = HEX[(int) (hash >>> 60) & 0xF];
+            path[1] = HEX[(int) (hash >>> 56) & 0xF];
+            path[2] = '/';
+            path[3] = HEX[(int) (hash >>> 52) & 0xF];
+            path[4] = HEX[(int) (hash >>> 48) & 0xF];
+            path[5] = '/';
+            name.getChars(0, name.length(), path, 6);
+            ".html".getChars(0, 5, path, 6 + name.length());
+            return new String(path);
+        }
+
+        @Override
+        public String pathToRoot() {
+            return "../../";
+        }
+    };
+
+    /**
+     * Hex digits used for folder names.
+     */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Returns the path of the page for {@code term}, relative to the output
+     * folder. See {@link #termHref} for the href to it.
+     *
+     * @param term
+     *            the term
+     * @return the path of the term's page
+     * @requires term is not null or empty
+     */
+    public abstract String termPagePath(String term);
+
+    /**
+     * Returns the path from a term page back to the output folder, ending in
+     * '/' unless it is empty.
+     *
+     * @return the relative path from a term page to the output folder
+     */
+    public abstract String pathToRoot();
+
+    /**
+     * Returns the href from the index page (or any page directly in the output
+     * folder) to the page for {@code term}.
+     *
+     * @param term
+     *            the linked term
+     * @return the href to the term's page
+     * @requires term is not null or empty
+     */
+    public String termHref(String term) {
+        return TermFilenames.href(this.termPagePath(term));
+    }
+
+    /**
+     * Returns the href from one term page to the page for {@code term}.
+     *
+     * @param term
+     *            the linked term
+     * @return the href to the term's page
+     * @requires term is not null or empty
+     */
+    public String termHrefFromTermPage(String term) {
+        return this.pathToRoot() + this.termHref(term);
+    }
+
+    /**
+     * Returns the href from a term page to the index page.
+     *
+     * @return the href to index.html
+     */
+    public String indexHrefFromTermPage() {
+        return this.pathToRoot() + "index.html";
+    }
+
+}
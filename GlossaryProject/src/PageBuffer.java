@@ -0,0 +1,68 @@
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An in-memory page that is printed to like a {@code SimpleWriter}. Pages are
+ * rendered into a buffer first and then handed to a {@link PageSink}, so
+ * rendering never waits on the disk.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public final class PageBuffer {
+
+    /**
+     * Typical size of a rendered page, used as the initial capacity.
+     */
+    private static final int INITIAL_CAPACITY = 4096;
+
+    /**
+     * The platform's line separator.
+     */
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    /**
+     * The text of the page.
+     */
+    private final StringBuilder text = new StringBuilder(INITIAL_CAPACITY);
+
+    /**
+     * Appends {@code s} to the page.
+     *
+     * @param s
+     *            the text to append
+     * @updates this
+     * @ensures this = #this * s
+     */
+    public void print(String s) {
+        this.text.append(s);
+    }
+
+    /**
+     * Appends {@code s} and the platform's line separator to the page, as
+     * {@code SimpleWriter.println} does, so a page is the same whichever of
+     * the two it is printed to.
+     *
+     * @param s
+     *            the line to append
+     * @updates this
+     * @ensures this = #this * s * LINE_SEPARATOR
+     */
+    public void println(String s) {
+        this.text.append(s).append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Returns the page encoded as UTF-8.
+     *
+     * @return the bytes of the page
+     */
+    public byte[] toBytes() {
+        return this.text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return this.text.toString();
+    }
+
+}
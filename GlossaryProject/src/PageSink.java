@@ -0,0 +1,31 @@
+/**
+ * Destination for rendered pages. Paths are relative to the output folder the
+ * sink was created for.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public interface PageSink {
+
+    /**
+     * Writes a page.
+     *
+     * @param path
+     *            the path of the page, relative to the output folder
+     * @param content
+     *            the bytes of the page
+     * @requires path is not null or empty, content is not null, and this is
+     *           open
+     * @ensures the page is (or, for asynchronous sinks, will be) written to
+     *          path
+     */
+    void write(String path, byte[] content);
+
+    /**
+     * Finishes all pending writes and releases any resources held by the sink.
+     *
+     * @ensures every page passed to write is on disk
+     */
+    void close();
+
+}
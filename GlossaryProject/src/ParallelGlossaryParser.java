@@ -0,0 +1,305 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import components.utilities.Reporter;
+
+/**
+ * Parses a glossary input file on several threads. The file is cut into byte
+ * ranges, each cut is moved forward to the start of the next record, and the
+ * ranges are parsed concurrently with fork/join. The records are then handed
+ * on in file order, so the result is the same as a sequential parse.
+ *
+ * <p>
+ * A record starts after an empty line that follows a non-empty line; that is
+ * exactly where {@link RecordParser} is between records, so every range starts
+ * and ends on a record boundary. The file is read as UTF-8, with lines ending
+ * in \n or \r\n.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public final class ParallelGlossaryParser {
+
+    /**
+     * No argument constructor--private to prevent instantiation.
+     */
+    private ParallelGlossaryParser() {
+    }
+
+    /**
+     * Ranges per thread, so that threads finishing early can take more work.
+     */
+    private static final int RANGES_PER_THREAD = 4;
+
+    /**
+     * Largest range that can be mapped into memory at once.
+     */
+    private static final long MAX_RANGE_BYTES = 256L * 1024 * 1024;
+
+    /**
+     * Size of the blocks read while looking for record boundaries.
+     */
+    private static final int SCAN_BLOCK_SIZE = 64 * 1024;
+
+    /**
+     * Parses the records in one byte range of the file. Ranges are split in
+     * half until a single range is left, and the halves' records are joined in
+     * order.
+     */
+    private static final class ParseTask extends RecursiveTask<List<String>> {
+
+        /**
+         * Default serial version UID.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The file being parsed.
+         */
+        private final transient FileChannel channel;
+
+        /**
+         * Boundaries of all the ranges; range i is
+         * [bounds[i], bounds[i + 1]).
+         */
+        private final long[] bounds;
+
+        /**
+         * First range of this task (inclusive).
+         */
+        private final int lo;
+
+        /**
+         * Last range of this task (exclusive).
+         */
+        private final int hi;
+
+        /**
+         * Creates a task for ranges [lo, hi).
+         *
+         * @param channel
+         *            the file being parsed
+         * @param bounds
+         *            boundaries of all the ranges
+         * @param lo
+         *            first range (inclusive)
+         * @param hi
+         *            last range (exclusive)
+         */
+        ParseTask(FileChannel channel, long[] bounds, int lo, int hi) {
+            this.channel = channel;
+            this.bounds = bounds;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected List<String> compute() {
+            List<String> result;
+            if (this.hi - this.lo == 1) {
+                result = parseRange(this.channel, this.bounds[this.lo],
+                        this.bounds[this.lo + 1]);
+            } else {
+                int mid = (this.lo + this.hi) >>> 1;
+                ParseTask left = new ParseTask(this.channel, this.bounds, this.lo, mid);
+                ParseTask right = new ParseTask(this.channel, this.bounds, mid, this.hi);
+                left.fork();
+                result = right.compute();
+                List<String> leftResult = left.join();
+                leftResult.addAll(result);
+                result = leftResult;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Parses {@code filename} with up to {@code parallelism} threads and
+     * passes its records to {@code handler} in file order.
+     *
+     * @param filename
+     *            the file to parse
+     * @param parallelism
+     *            the number of threads to use
+     * @param minRangeBytes
+     *            the smallest byte range worth giving to a thread
+     * @param handler
+     *            receives the records
+     * @requires filename is not null or empty, parallelism > 0, minRangeBytes
+     *           > 0, and handler is not null
+     * @ensures handler receives the same records, in the same order, as a
+     *          sequential parse of the file
+     */
+    public static void parse(String filename, int parallelism, long minRangeBytes,
+            RecordParser.RecordHandler handler) {
+        assert filename != null : "Violation of: filename is not null";
+        assert !filename.equals("") : "Violation of: filename is not empty";
+        assert parallelism > 0 : "Violation of: parallelism > 0";
+        assert minRangeBytes > 0 : "Violation of: minRangeBytes > 0";
+        assert handler != null : "Violation of: handler is not null";
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            /*
+             * Cuts the file into ranges of about equal size, then moves each
+             * cut forward to the next record boundary.
+             */
+            long ranges = Math.min(size / minRangeBytes,
+                    (long) parallelism * RANGES_PER_THREAD);
+            ranges = Math.max(ranges, (size + MAX_RANGE_BYTES - 1) / MAX_RANGE_BYTES);
+            ranges = Math.max(ranges, 1);
+            long[] bounds = new long[(int) ranges + 1];
+            for (int i = 1; i < ranges; i++) {
+                long cut = Math.max(size / ranges * i, bounds[i - 1]);
+                bounds[i] = nextRecordStart(channel, cut, size);
+            }
+            bounds[(int) ranges] = size;
+
+            /*
+             * Parses the ranges concurrently and passes the records on in
+             * order; the glossary itself is only touched from this thread.
+             */
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            List<String> records;
+            try {
+                records = pool.invoke(new ParseTask(channel, bounds, 0, (int) ranges));
+            } finally {
+                pool.shutdown();
+            }
+            for (int i = 0; i < records.size(); i += 2) {
+                handler.record(records.get(i), records.get(i + 1));
+            }
+        } catch (IOException e) {
+            Reporter.fatalErrorToConsole("Could not read " + filename + ": " + e);
+        }
+    }
+
+    /**
+     * Returns the start of the first record at or after {@code pos}: the
+     * position after an empty line that follows a non-empty line. Returns
+     * {@code size} if there is none.
+     *
+     * @param channel
+     *            the file
+     * @param pos
+     *            where to start looking
+     * @param size
+     *            the size of the file
+     * @return the start of the next record, or size
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    private static long nextRecordStart(FileChannel channel, long pos, long size)
+            throws IOException {
+        /*
+         * Matches <content byte> \r? \n \r? \n. The states count how much of
+         * the pattern has been seen.
+         */
+        final int none = 0;
+        final int content = 1;
+        final int firstNewline = 2;
+        ByteBuffer block = ByteBuffer.allocate(SCAN_BLOCK_SIZE);
+        int state = none;
+        long at = pos;
+        while (at < size) {
+            block.clear();
+            int n = channel.read(block, at);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                byte b = block.get(i);
+                if (b == '\n') {
+                    if (state == content) {
+                        state = firstNewline;
+                    } else if (state == firstNewline) {
+                        return at + i + 1;
+                    }
+                } else if (b != '\r') {
+                    state = content;
+                }
+            }
+            at += n;
+        }
+        return size;
+    }
+
+    /**
+     * Parses the records in {@code [start, end)} of the file.
+     *
+     * @param channel
+     *            the file
+     * @param start
+     *            start of the range, at a record boundary
+     * @param end
+     *            end of the range, at a record boundary or the end of the file
+     * @return the records as a list of term, definition, term, definition, ...
+     */
+    private static List<String> parseRange(FileChannel channel, long start, long end) {
+        final List<String> records = new ArrayList<>();
+        if (end - start > Integer.MAX_VALUE) {
+            Reporter.fatalErrorToConsole("Record too large to parse near byte " + start);
+        }
+        MappedByteBuffer bytes;
+        try {
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            Reporter.fatalErrorToConsole(
+                    "Could not read input near byte " + start + ": " + e);
+            return records;
+        }
+
+        RecordParser parser = new RecordParser(new RecordParser.RecordHandler() {
+            @Override
+            public void record(String term, String definition) {
+                records.add(term);
+                records.add(definition);
+            }
+        });
+
+        /*
+         * Splits the range into lines, dropping the \n (and a \r before it),
+         * like a line reader would.
+         */
+        byte[] line = new byte[256];
+        int length = 0;
+        while (bytes.hasRemaining()) {
+            byte b = bytes.get();
+            if (b == '\n') {
+                if (length > 0 && line[length - 1] == '\r') {
+                    length--;
+                }
+                parser.line(new String(line, 0, length, StandardCharsets.UTF_8));
+                length = 0;
+            } else {
+                if (length == line.length) {
+                    byte[] bigger = new byte[2 * length];
+                    System.arraycopy(line, 0, bigger, 0, length);
+                    line = bigger;
+                }
+                line[length] = b;
+                length++;
+            }
+        }
+        if (length > 0) {
+            if (line[length - 1] == '\r') {
+                length--;
+            }
+            parser.line(new String(line, 0, length, StandardCharsets.UTF_8));
+        }
+        parser.finish();
+        return records;
+    }
+
+}
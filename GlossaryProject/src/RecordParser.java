@@ -0,0 +1,108 @@
+/**
+ * Turns the lines of a glossary input into (term, definition) records. The
+ * first line of a record is the term, the lines after it up to the next empty
+ * line are the definition, and the definition lines are joined with spaces.
+ *
+ * <p>
+ * Lines are pushed in one at a time, so the same parser is used whatever the
+ * lines are read from.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public final class RecordParser {
+
+    /**
+     * Receives the records found by a parser.
+     */
+    public interface RecordHandler {
+
+        /**
+         * Called for each record, in input order.
+         *
+         * @param term
+         *            the term
+         * @param definition
+         *            the definition, trimmed
+         */
+        void record(String term, String definition);
+    }
+
+    /**
+     * Receives the records.
+     */
+    private final RecordHandler handler;
+
+    /**
+     * The term of the record being read, or null between records.
+     */
+    private String term = null;
+
+    /**
+     * The definition lines read so far for the current record.
+     */
+    private final StringBuilder definition = new StringBuilder();
+
+    /**
+     * Creates a parser passing its records to {@code handler}.
+     *
+     * @param handler
+     *            receives the records
+     * @requires handler is not null
+     */
+    public RecordParser(RecordHandler handler) {
+        assert handler != null : "Violation of: handler is not null";
+
+        this.handler = handler;
+    }
+
+    /**
+     * Reads the next line of the input.
+     *
+     * @param line
+     *            the line, without its line terminator
+     * @updates this
+     * @requires line is not null
+     */
+    public void line(String line) {
+        assert line != null : "Violation of: line is not null";
+
+        if (this.term == null) {
+            /*
+             * The first line of a record is the term.
+             */
+            this.term = line;
+            this.definition.setLength(0);
+        } else if (line.equals("")) {
+            /*
+             * An empty line ends the definition.
+             */
+            this.emit();
+        } else {
+            this.definition.append(line).append(" ");
+        }
+    }
+
+    /**
+     * Ends the input, passing on the last record if the input did not end with
+     * an empty line.
+     *
+     * @updates this
+     */
+    public void finish() {
+        if (this.term != null) {
+            this.emit();
+        }
+    }
+
+    /**
+     * Passes the current record to the handler.
+     */
+    private void emit() {
+        String finalDef = this.definition.toString().trim();
+        String finalTerm = this.term;
+        this.term = null;
+        this.handler.record(finalTerm, finalDef);
+    }
+
+}
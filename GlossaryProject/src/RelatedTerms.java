@@ -0,0 +1,481 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import components.map.Map;
+
+/**
+ * Finds, for every term, the terms with the most similar definitions. The
+ * similarity of two definitions is the Jaccard similarity of their sets of
+ * words, estimated with MinHash signatures. Locality-sensitive hashing over
+ * bands of the signatures only compares terms that share a band, so the work
+ * grows about linearly with the size of the glossary instead of with the
+ * number of pairs.
+ *
+ * <p>
+ * Signatures are computed in parallel and can be saved to a cache file; on the
+ * next run only terms whose definition changed are hashed again.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public final class RelatedTerms {
+
+    /**
+     * Number of hash functions in a signature.
+     */
+    private static final int NUM_HASHES = 32;
+
+    /**
+     * Number of rows in each band; bands = NUM_HASHES / ROWS. With 16 bands
+     * of 2 rows, pairs with a similarity of about 0.25 or more are likely to
+     * be compared.
+     */
+    private static final int ROWS = 2;
+
+    /**
+     * Smallest estimated similarity for a term to count as related.
+     */
+    private static final double MIN_SIMILARITY = 0.2;
+
+    /**
+     * Most related terms kept per term.
+     */
+    private static final int MAX_RELATED = 5;
+
+    /**
+     * Buckets with more terms than this are skipped. They come from words
+     * shared by a large part of the glossary and would bring back the
+     * all-pairs cost without saying much about similarity.
+     */
+    private static final int MAX_BUCKET_SIZE = 100;
+
+    /**
+     * Shortest word that is used; shorter ones ("a", "of") carry little
+     * meaning.
+     */
+    private static final int MIN_WORD_LENGTH = 3;
+
+    /**
+     * Identifies a signature cache file.
+     */
+    private static final int CACHE_MAGIC = 0x474D4831;
+
+    /**
+     * Common English words that are left out of the word sets.
+     */
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList("the",
+            "and", "for", "that", "with", "which", "are", "from", "this", "its", "has",
+            "have", "was", "were", "been", "into", "any", "each", "not", "but", "can",
+            "all", "one", "such", "used", "who", "whose", "their"));
+
+    /**
+     * Seeds of the hash functions.
+     */
+    private static final long[] SEEDS = new long[NUM_HASHES];
+
+    static {
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            seed = mix(seed + i);
+            SEEDS[i] = seed;
+        }
+    }
+
+    /**
+     * The terms, in sorted order.
+     */
+    private final String[] terms;
+
+    /**
+     * Position of each term in {@code terms}.
+     */
+    private final HashMap<String, Integer> positions;
+
+    /**
+     * Indices (into {@code terms}) of the related terms of each term, most
+     * similar first.
+     */
+    private final int[][] related;
+
+    /**
+     * Creates the result of a computation.
+     *
+     * @param terms
+     *            the sorted terms
+     * @param positions
+     *            position of each term
+     * @param related
+     *            the related terms of each term
+     */
+    private RelatedTerms(String[] terms, HashMap<String, Integer> positions,
+            int[][] related) {
+        this.terms = terms;
+        this.positions = positions;
+        this.related = related;
+    }
+
+    /**
+     * Returns the terms related to {@code term}, most similar first.
+     *
+     * @param term
+     *            the term
+     * @return the related terms; empty if there are none or the term is
+     *         unknown
+     * @requires term is not null
+     */
+    public List<String> relatedTo(String term) {
+        assert term != null : "Violation of: term is not null";
+
+        List<String> result = new ArrayList<>();
+        Integer i = this.positions.get(term);
+        if (i != null) {
+            for (int j : this.related[i]) {
+                result.add(this.terms[j]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the related terms of every term of {@code glossary}.
+     *
+     * @param glossary
+     *            the glossary
+     * @param cacheFile
+     *            file to load signatures from and save them to, or null for
+     *            no cache
+     * @return the related terms
+     * @requires glossary is not null
+     */
+    public static RelatedTerms compute(Map<String, String> glossary, String cacheFile) {
+        assert glossary != null : "Violation of: glossary is not null";
+
+        final String[] terms = new String[glossary.size()];
+        int n = 0;
+        for (Map.Pair<String, String> pair : glossary) {
+            terms[n] = pair.key();
+            n++;
+        }
+        Arrays.sort(terms);
+        final String[] definitions = new String[n];
+        final long[] definitionHashes = new long[n];
+        HashMap<String, Integer> positions = new HashMap<>(2 * n);
+        for (int i = 0; i < n; i++) {
+            definitions[i] = glossary.value(terms[i]);
+            definitionHashes[i] = TermFilenames.hash(definitions[i]);
+            positions.put(terms[i], i);
+        }
+
+        /*
+         * Reuses cached signatures of unchanged definitions and computes the
+         * rest in parallel.
+         */
+        final int[][] signatures = new int[n][];
+        if (cacheFile != null) {
+            loadCache(Paths.get(cacheFile), positions, definitionHashes, signatures);
+        }
+        IntStream.range(0, n).parallel().forEach(new IntConsumer() {
+            @Override
+            public void accept(int i) {
+                if (signatures[i] == null) {
+                    signatures[i] = signature(definitions[i]);
+                }
+            }
+        });
+        if (cacheFile != null) {
+            saveCache(Paths.get(cacheFile), terms, definitionHashes, signatures);
+        }
+
+        /*
+         * Puts each term into one bucket per band. Terms sharing a bucket are
+         * candidates.
+         */
+        int bands = NUM_HASHES / ROWS;
+        final HashMap<Long, List<Integer>> buckets = new HashMap<>();
+        final long[][] keys = new long[n][];
+        for (int i = 0; i < n; i++) {
+            if (signatures[i].length > 0) {
+                keys[i] = new long[bands];
+                for (int b = 0; b < bands; b++) {
+                    long key = b;
+                    for (int r = 0; r < ROWS; r++) {
+                        key = mix(key * 31 + signatures[i][b * ROWS + r]);
+                    }
+                    keys[i][b] = key;
+                    List<Integer> bucket = buckets.get(key);
+                    if (bucket == null) {
+                        bucket = new ArrayList<>(2);
+                        buckets.put(key, bucket);
+                    }
+                    if (bucket.size() <= MAX_BUCKET_SIZE) {
+                        bucket.add(i);
+                    }
+                }
+            }
+        }
+
+        /*
+         * Scores each term's candidates by estimated similarity and keeps the
+         * best.
+         */
+        final int[][] related = new int[n][];
+        IntStream.range(0, n).parallel().forEach(new IntConsumer() {
+            @Override
+            public void accept(int i) {
+                related[i] = best(i, signatures, keys[i], buckets);
+            }
+        });
+        return new RelatedTerms(terms, positions, related);
+    }
+
+    /**
+     * Returns the most similar candidates of term {@code i}.
+     *
+     * @param i
+     *            the term
+     * @param signatures
+     *            the signatures of all terms
+     * @param keys
+     *            the bucket keys of term i, or null if it has none
+     * @param buckets
+     *            the buckets
+     * @return the related terms of term i, most similar first
+     */
+    private static int[] best(int i, int[][] signatures, long[] keys,
+            HashMap<Long, List<Integer>> buckets) {
+        List<int[]> scored = new ArrayList<>();
+        if (keys != null) {
+            Set<Integer> seen = new HashSet<>();
+            seen.add(i);
+            for (long key : keys) {
+                List<Integer> bucket = buckets.get(key);
+                if (bucket.size() > MAX_BUCKET_SIZE) {
+                    continue;
+                }
+                for (int j : bucket) {
+                    if (seen.add(j)) {
+                        int same = 0;
+                        for (int h = 0; h < NUM_HASHES; h++) {
+                            if (signatures[i][h] == signatures[j][h]) {
+                                same++;
+                            }
+                        }
+                        if (same >= MIN_SIMILARITY * NUM_HASHES) {
+                            scored.add(new int[] { j, same });
+                        }
+                    }
+                }
+            }
+        }
+
+        /*
+         * Most similar first; ties go to the term that sorts first.
+         */
+        Collections.sort(scored, new Comparator<int[]>() {
+            @Override
+            public int compare(int[] a, int[] b) {
+                int order = Integer.compare(b[1], a[1]);
+                if (order == 0) {
+                    order = Integer.compare(a[0], b[0]);
+                }
+                return order;
+            }
+        });
+        int[] result = new int[Math.min(MAX_RELATED, scored.size())];
+        for (int k = 0; k < result.length; k++) {
+            result[k] = scored.get(k)[0];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the MinHash signature of the set of words of
+     * {@code definition}, or an empty array if it has no usable words.
+     *
+     * @param definition
+     *            the definition
+     * @return the signature
+     */
+    static int[] signature(String definition) {
+        long[] mins = new long[NUM_HASHES];
+        Arrays.fill(mins, Long.MAX_VALUE);
+        boolean any = false;
+
+        int pos = 0;
+        int length = definition.length();
+        while (pos < length) {
+            int cp = definition.codePointAt(pos);
+            while (pos < length && !Character.isLetterOrDigit(cp)) {
+                pos += Character.charCount(cp);
+                cp = pos < length ? definition.codePointAt(pos) : 0;
+            }
+            int start = pos;
+            while (pos < length && Character.isLetterOrDigit(cp)) {
+                pos += Character.charCount(cp);
+                cp = pos < length ? definition.codePointAt(pos) : 0;
+            }
+            if (definition.codePointCount(start, pos) >= MIN_WORD_LENGTH) {
+                String word = TermKeys.fold(definition, start, pos);
+                if (!STOP_WORDS.contains(word)) {
+                    any = true;
+                    long wordHash = TermFilenames.hash(word);
+                    for (int h = 0; h < NUM_HASHES; h++) {
+                        long value = mix(wordHash ^ SEEDS[h]);
+                        if (value < mins[h]) {
+                            mins[h] = value;
+                        }
+                    }
+                }
+            }
+        }
+
+        int[] signature = new int[0];
+        if (any) {
+            signature = new int[NUM_HASHES];
+            for (int h = 0; h < NUM_HASHES; h++) {
+                signature[h] = (int) (mins[h] >>> 32);
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Scrambles the bits of {@code x} (the SplitMix64 finalizer).
+     *
+     * @param x
+     *            the value to scramble
+     * @return the scrambled value
+     */
+    private static long mix(long x) {
+        long z = x;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Fills in {@code signatures} from the cache for terms whose definition
+     * is unchanged. A missing, unreadable or damaged cache is ignored: every
+     * length read from it is checked against the bytes left in the file, so
+     * a bad length cannot cause a huge allocation or a misread.
+     *
+     * @param file
+     *            the cache file
+     * @param positions
+     *            position of each term
+     * @param definitionHashes
+     *            hash of each term's current definition
+     * @param signatures
+     *            the signatures to fill in
+     */
+    private static void loadCache(Path file, HashMap<String, Integer> positions,
+            long[] definitionHashes, int[][] signatures) {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != CACHE_MAGIC || in.readInt() != NUM_HASHES) {
+                return;
+            }
+            int count = in.readInt();
+            long remaining = Files.size(file) - 3 * Integer.BYTES;
+            // each entry has at least two lengths and a definition hash
+            if (count < 0 || count > remaining / (2 * Integer.BYTES + Long.BYTES)) {
+                throw new IOException("Damaged cache " + file);
+            }
+            for (int k = 0; k < count; k++) {
+                int termLength = in.readInt();
+                remaining -= Integer.BYTES;
+                if (termLength < 0 || termLength > remaining) {
+                    throw new IOException("Damaged cache " + file);
+                }
+                byte[] termBytes = new byte[termLength];
+                in.readFully(termBytes);
+                long definitionHash = in.readLong();
+                int signatureLength = in.readInt();
+                remaining -= termLength + Long.BYTES + Integer.BYTES;
+                // terms without words have an empty signature
+                if ((signatureLength != NUM_HASHES && signatureLength != 0)
+                        || (long) signatureLength * Integer.BYTES > remaining) {
+                    throw new IOException("Damaged cache " + file);
+                }
+                int[] signature = new int[signatureLength];
+                for (int h = 0; h < signature.length; h++) {
+                    signature[h] = in.readInt();
+                }
+                remaining -= (long) signatureLength * Integer.BYTES;
+                Integer i = positions.get(new String(termBytes, StandardCharsets.UTF_8));
+                if (i != null && definitionHashes[i] == definitionHash) {
+                    signatures[i] = signature;
+                }
+            }
+        } catch (IOException e) {
+            // a damaged cache only costs recomputing the signatures
+            Arrays.fill(signatures, null);
+        }
+    }
+
+    /**
+     * Saves the signatures to the cache, replacing it atomically.
+     *
+     * @param file
+     *            the cache file
+     * @param terms
+     *            the terms
+     * @param definitionHashes
+     *            hash of each term's definition
+     * @param signatures
+     *            the signature of each term
+     */
+    private static void saveCache(Path file, String[] terms, long[] definitionHashes,
+            int[][] signatures) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(CACHE_MAGIC);
+                out.writeInt(NUM_HASHES);
+                out.writeInt(terms.length);
+                for (int i = 0; i < terms.length; i++) {
+                    byte[] termBytes = terms[i].getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(termBytes.length);
+                    out.write(termBytes);
+                    out.writeLong(definitionHashes[i]);
+                    out.writeInt(signatures[i].length);
+                    for (int value : signatures[i]) {
+                        out.writeInt(value);
+                    }
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the cache is only an optimization; the next run recomputes
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e2) {
+                // nothing more to do; the next save replaces it
+            }
+        }
+    }
+
+}
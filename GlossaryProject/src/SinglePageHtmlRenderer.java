@@ -0,0 +1,76 @@
+/**
+ * Renders the whole glossary as one HTML page: an index of all terms followed
+ * by every definition, with linked terms pointing to anchors on the same page.
+ *
+ * <p>
+ * The page is named "glossary_all.html". Term pages can never have that name,
+ * because {@link TermFilenames} always escapes '_'.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public final class SinglePageHtmlRenderer implements GlossaryRenderer {
+
+    /**
+     * The definitions, collected while the index is rendered and appended
+     * after it in {@link #end}.
+     */
+    private PageBuffer definitions = new PageBuffer();
+
+    @Override
+    public String fileName() {
+        return "glossary_all.html";
+    }
+
+    @Override
+    public void begin(PageBuffer out, int termCount) {
+        this.definitions = new PageBuffer();
+
+        out.println("<html>");
+        out.println("<head>");
+        out.println("<title>Glossary</title>");
+        Main.writeCSS(out);
+        out.println("</head>");
+        out.println("<body>");
+        out.println("<h1><b>Glossary</b></h1>");
+        out.println("<div>");
+        out.println("<ul>");
+    }
+
+    @Override
+    public void term(PageBuffer out, String term, LinkedDefinition definition) {
+        String id = TermFilenames.anchor(term);
+        String escapedTerm = HtmlEscaper.escape(term);
+        out.println("<a href=\"#" + id + "\"><li>" + escapedTerm + "</li></a>");
+
+        String def = definition.definition();
+        StringBuilder text = new StringBuilder(def.length() + def.length() / 2);
+        int pos = 0;
+        for (int i = 0; i < definition.linkCount(); i++) {
+            HtmlEscaper.appendEscaped(text, def, pos, definition.linkStart(i));
+            text.append("<a href=\"#")
+                    .append(TermFilenames.anchor(definition.linkTerm(i))).append("\">");
+            HtmlEscaper.appendEscaped(text, def, definition.linkStart(i),
+                    definition.linkEnd(i));
+            text.append("</a>");
+            pos = definition.linkEnd(i);
+        }
+        HtmlEscaper.appendEscaped(text, def, pos, def.length());
+
+        this.definitions.println("<div id=\"" + id + "\">");
+        this.definitions.println("<h2>" + escapedTerm + "</h2>");
+        this.definitions.println("<p>" + text + "</p>");
+        this.definitions.println("</div>");
+    }
+
+    @Override
+    public void end(PageBuffer out) {
+        out.println("</ul>");
+        out.println("</div>");
+        out.print(this.definitions.toString());
+        out.println("</body>");
+        out.println("</html>");
+        this.definitions = new PageBuffer();
+    }
+
+}
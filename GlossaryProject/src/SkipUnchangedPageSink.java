@@ -0,0 +1,142 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Passes a page on to another sink only if it differs from the file already on
+ * disk. Unchanged files keep their modification time, so tools that sync the
+ * output folder only see the pages that really changed.
+ *
+ * <p>
+ * A page is compared with its file by size first and then byte by byte, a
+ * block at a time, stopping at the first difference.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public final class SkipUnchangedPageSink implements PageSink {
+
+    /**
+     * Size of the blocks read from existing files.
+     */
+    private static final int BLOCK_SIZE = 8192;
+
+    /**
+     * The output folder.
+     */
+    private final Path folder;
+
+    /**
+     * The sink changed pages are passed to.
+     */
+    private final PageSink delegate;
+
+    /**
+     * Buffer existing files are read into, reused for every page.
+     */
+    private final ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+
+    /**
+     * Number of pages passed on to the delegate.
+     */
+    private int written = 0;
+
+    /**
+     * Number of pages skipped because their file was already up to date.
+     */
+    private int skipped = 0;
+
+    /**
+     * Creates a sink that skips pages whose file in {@code folderLocation} is
+     * already up to date.
+     *
+     * @param folderLocation
+     *            the output folder of {@code delegate}
+     * @param delegate
+     *            the sink changed pages are passed to
+     * @requires folderLocation is not null or empty and delegate is not null
+     */
+    public SkipUnchangedPageSink(String folderLocation, PageSink delegate) {
+        assert folderLocation != null : "Violation of: folderLocation is not null";
+        assert !folderLocation.equals("") : "Violation of: folderLocation is not empty";
+        assert delegate != null : "Violation of: delegate is not null";
+
+        this.folder = Paths.get(folderLocation);
+        this.delegate = delegate;
+    }
+
+    /**
+     * Reports whether {@code file} holds exactly {@code content}.
+     *
+     * @param file
+     *            the file to compare
+     * @param content
+     *            the expected bytes
+     * @return true if the file exists and its bytes equal {@code content}
+     */
+    private boolean isUnchanged(Path file, byte[] content) {
+        boolean same;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            same = channel.size() == content.length;
+            int pos = 0;
+            while (same && pos < content.length) {
+                this.block.clear();
+                int n = channel.read(this.block);
+                if (n <= 0) {
+                    same = false;
+                } else {
+                    this.block.flip();
+                    same = this.block.equals(ByteBuffer.wrap(content, pos, n));
+                    pos += n;
+                }
+            }
+        } catch (IOException e) {
+            // unreadable files are simply written again
+            same = false;
+        }
+        return same;
+    }
+
+    @Override
+    public void write(String path, byte[] content) {
+        assert path != null : "Violation of: path is not null";
+        assert !path.equals("") : "Violation of: path is not empty";
+        assert content != null : "Violation of: content is not null";
+
+        Path file = this.folder.resolve(path);
+        if (Files.isRegularFile(file) && this.isUnchanged(file, content)) {
+            this.skipped++;
+        } else {
+            this.delegate.write(path, content);
+            this.written++;
+        }
+    }
+
+    @Override
+    public void close() {
+        this.delegate.close();
+    }
+
+    /**
+     * Returns the number of pages that were written.
+     *
+     * @return the number of changed pages
+     */
+    public int writtenCount() {
+        return this.written;
+    }
+
+    /**
+     * Returns the number of pages that were skipped as unchanged.
+     *
+     * @return the number of unchanged pages
+     */
+    public int skippedCount() {
+        return this.skipped;
+    }
+
+}
@@ -0,0 +1,245 @@
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Turns glossary terms into file names that are valid on Linux, macOS and
+ * Windows. The encoding is deterministic, so the same term always gets the
+ * same file name.
+ *
+ * <p>
+ * Letters and digits (ASCII only), '-', and '.' or ' ' when not at either end
+ * of the term are kept. Every other character is written as '_' followed by
+ * the two hex digits of each of its UTF-8 bytes, so "a/b" becomes "a_2Fb".
+ * Names that Windows reserves for devices, such as "CON" or "com1.x", get
+ * their first letter escaped the same way, and so do the names of the site's
+ * own pages, so a term "index" cannot replace index.html. Names that would be
+ * too long for the file system are cut short and end with '~' and a hash of
+ * the whole term.
+ *
+ * <p>
+ * Names keep the case of their terms, so terms that differ only in case
+ * ("Word" and "word") get names that clash on case-insensitive file systems,
+ * the default on Windows and macOS. Names may contain spaces; use
+ * {@link #href} to turn a path made of them into an href.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public final class TermFilenames {
+
+    /**
+     * No argument constructor--private to prevent instantiation.
+     */
+    private TermFilenames() {
+    }
+
+    /**
+     * Longest encoded name that is kept whole. Leaves room for an extension
+     * within the usual 255 byte file name limit.
+     */
+    private static final int MAX_LENGTH = 200;
+
+    /**
+     * Length an encoded name is cut to before the hash is added.
+     */
+    private static final int TRUNCATED_LENGTH = 180;
+
+    /**
+     * Hex digits used for escaped bytes.
+     */
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * Device names reserved by Windows, with or without an extension.
+     */
+    private static final String[] RESERVED_NAMES = { "CON", "PRN", "AUX", "NUL",
+            "COM1", "COM2", "COM3", "COM4", "COM5", "COM6", "COM7", "COM8", "COM9",
+            "LPT1", "LPT2", "LPT3", "LPT4", "LPT5", "LPT6", "LPT7", "LPT8", "LPT9" };
+
+    /**
+     * Names of the pages the site writes next to the term pages, without
+     * their ".html" extension.
+     */
+    private static final String[] SITE_PAGES = { "index" };
+
+    /**
+     * Reports whether {@code name}, up to its first '.', is a device name
+     * reserved by Windows, or whether the whole name is that of one of the
+     * site's own pages, in any case.
+     *
+     * @param name
+     *            the file name
+     * @return true if the name cannot be used for a term page
+     */
+    private static boolean isReserved(CharSequence name) {
+        int end = 0;
+        while (end < name.length() && name.charAt(end) != '.') {
+            end++;
+        }
+        boolean reserved = false;
+        for (String device : RESERVED_NAMES) {
+            if (device.length() == end) {
+                boolean same = true;
+                for (int i = 0; i < end && same; i++) {
+                    same = Character.toUpperCase(name.charAt(i)) == device.charAt(i);
+                }
+                reserved |= same;
+            }
+        }
+        for (String page : SITE_PAGES) {
+            reserved |= page.equalsIgnoreCase(name.toString());
+        }
+        return reserved;
+    }
+
+    /**
+     * Reports whether {@code term.charAt(i)} can be kept as is.
+     *
+     * @param term
+     *            the term
+     * @param i
+     *            the index of the character to check
+     * @return true if the character does not need escaping
+     */
+    private static boolean isSafe(String term, int i) {
+        char c = term.charAt(i);
+        boolean safe = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+                || (c >= '0' && c <= '9') || c == '-';
+        if (c == '.' || c == ' ') {
+            safe = i > 0 && i < term.length() - 1;
+        }
+        return safe;
+    }
+
+    /**
+     * Returns the file name (without extension) for {@code term}. If the term
+     * needs no escaping it is returned as is.
+     *
+     * @param term
+     *            the term to encode
+     * @return the encoded file name
+     * @requires term is not null or empty
+     * @ensures encode is a non-empty file name made of safe characters, and
+     *          different terms give different names (for very long terms,
+     *          barring a hash collision)
+     */
+    public static String encode(String term) {
+        assert term != null : "Violation of: term is not null";
+        assert !term.equals("") : "Violation of: term is not empty";
+
+        /*
+         * Finds the first character that needs escaping. Most terms have none,
+         * in which case no copy is made.
+         */
+        int i = 0;
+        while (i < term.length() && isSafe(term, i)) {
+            i++;
+        }
+        boolean reserved = isReserved(term);
+        if (i == term.length() && term.length() <= MAX_LENGTH && !reserved) {
+            return term;
+        }
+
+        StringBuilder name = new StringBuilder(term.length() + 16);
+        if (reserved) {
+            /*
+             * Reserved names start with an ASCII letter, so the escape is one
+             * byte.
+             */
+            char c = term.charAt(0);
+            name.append('_').append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+            i = 1;
+        } else {
+            name.append(term, 0, i);
+        }
+        while (i < term.length()) {
+            if (isSafe(term, i)) {
+                name.append(term.charAt(i));
+                i++;
+            } else {
+                int cp = term.codePointAt(i);
+                int next = i + Character.charCount(cp);
+                byte[] bytes = term.substring(i, next).getBytes(StandardCharsets.UTF_8);
+                for (byte b : bytes) {
+                    name.append('_').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+                }
+                i = next;
+            }
+        }
+
+        /*
+         * Long names are cut (never inside an escape) and made unique again
+         * with a hash of the whole term.
+         */
+        if (name.length() > MAX_LENGTH) {
+            int cut = TRUNCATED_LENGTH;
+            while (name.charAt(cut - 1) == '_' || name.charAt(cut - 2) == '_') {
+                cut--;
+            }
+            name.setLength(cut);
+            name.append('~');
+            long hash = hash(term);
+            for (int shift = 60; shift >= 0; shift -= 4) {
+                name.append(HEX[(int) (hash >>> shift) & 0xF]);
+            }
+        }
+        return name.toString();
+    }
+
+    /**
+     * Returns the fragment id for {@code term}, for pages that hold every
+     * term. It is the encoded name with its spaces escaped like any other
+     * character ("linked list" becomes "linked_20list"), so it is a valid HTML
+     * id and Markdown link target, and different terms get different ids.
+     *
+     * @param term
+     *            the term
+     * @return the id of the term
+     * @requires term is not null or empty
+     */
+    public static String anchor(String term) {
+        String name = encode(term);
+        if (name.indexOf(' ') >= 0) {
+            name = name.replace(" ", "_20");
+        }
+        return name;
+    }
+
+    /**
+     * Returns the href for {@code path}, a path made of encoded names. Spaces,
+     * the only characters encoded names keep that are not allowed in a URL,
+     * are percent-encoded.
+     *
+     * @param path
+     *            the path, relative to some page
+     * @return the href
+     * @requires path is not null
+     */
+    public static String href(String path) {
+        assert path != null : "Violation of: path is not null";
+
+        String href = path;
+        if (path.indexOf(' ') >= 0) {
+            href = path.replace(" ", "%20");
+        }
+        return href;
+    }
+
+    /**
+     * Returns a 64-bit FNV-1a hash of the characters of {@code s}. It is the
+     * same on every run and every JVM, so it can be used to place files.
+     *
+     * @param s
+     *            the string to hash
+     * @return the hash of {@code s}
+     */
+    static long hash(String s) {
+        final long offsetBasis = 0xcbf29ce484222325L;
+        final long prime = 0x100000001b3L;
+        long hash = offsetBasis;
+        for (int i = 0; i < s.length(); i++) {
+            hash = (hash ^ s.charAt(i)) * prime;
+        }
+        return hash;
+    }
+
+}
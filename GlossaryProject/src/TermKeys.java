@@ -0,0 +1,168 @@
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * The normal form terms are matched in. A key is NFKC-normalized and case
+ * folded, so a term matches whether it is written in upper or lower case,
+ * with accents composed or decomposed, in full-width letters, or (for the
+ * German sharp s) spelled with "SS".
+ *
+ * <p>
+ * Folding never depends on the default locale, so matching works the same on
+ * a JVM running in Turkish, where "TITLE".toLowerCase() is "tıtle". Pure ASCII
+ * text, the common case, only needs its letters lowercased; {@link #hash} and
+ * {@link #matches} do that on the fly without creating any strings.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public final class TermKeys {
+
+    /**
+     * No argument constructor--private to prevent instantiation.
+     */
+    private TermKeys() {
+    }
+
+    /**
+     * Returns the ASCII lowercase form of {@code c}; other characters are
+     * returned as they are.
+     *
+     * @param c
+     *            the character
+     * @return c with 'A'..'Z' mapped to 'a'..'z'
+     */
+    static char asciiLower(char c) {
+        char lower = c;
+        if (c >= 'A' && c <= 'Z') {
+            lower = (char) (c + ('a' - 'A'));
+        }
+        return lower;
+    }
+
+    /**
+     * Reports whether {@code s[start, end)} holds only ASCII characters.
+     *
+     * @param s
+     *            the text
+     * @param start
+     *            start index (inclusive)
+     * @param end
+     *            end index (exclusive)
+     * @return true if every character is below 0x80
+     */
+    static boolean isAscii(CharSequence s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the key of {@code s}: its NFKC normal form, case folded.
+     *
+     * @param s
+     *            the text
+     * @return the folded key
+     * @requires s is not null
+     */
+    public static String fold(String s) {
+        assert s != null : "Violation of: s is not null";
+
+        return fold(s, 0, s.length());
+    }
+
+    /**
+     * Returns the key of {@code s[start, end)}: its NFKC normal form, case
+     * folded.
+     *
+     * @param s
+     *            the text
+     * @param start
+     *            start index (inclusive)
+     * @param end
+     *            end index (exclusive)
+     * @return the folded key
+     * @requires s is not null and 0 <= start <= end <= |s|
+     */
+    public static String fold(String s, int start, int end) {
+        assert s != null : "Violation of: s is not null";
+
+        String key;
+        if (isAscii(s, start, end)) {
+            char[] chars = new char[end - start];
+            boolean changed = false;
+            for (int i = start; i < end; i++) {
+                char c = s.charAt(i);
+                chars[i - start] = asciiLower(c);
+                changed |= chars[i - start] != c;
+            }
+            if (changed) {
+                key = new String(chars);
+            } else {
+                key = s.substring(start, end);
+            }
+        } else {
+            /*
+             * Java has no case folding of its own; upper then lower case
+             * (both locale-independent) gives the same result for the
+             * characters that differ, such as 'ß' and final sigma. The second
+             * normalization recomposes anything the case mapping split up.
+             */
+            key = Normalizer.normalize(s.substring(start, end), Normalizer.Form.NFKC);
+            key = key.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+            key = Normalizer.normalize(key, Normalizer.Form.NFKC);
+        }
+        return key;
+    }
+
+    /**
+     * Returns the hash of the key of the ASCII text {@code s[start, end)},
+     * computed without creating the key. It equals {@code hash(k, 0, |k|)}
+     * for any folded key {@code k}.
+     *
+     * @param s
+     *            the text, ASCII or already folded
+     * @param start
+     *            start index (inclusive)
+     * @param end
+     *            end index (exclusive)
+     * @return the hash
+     */
+    static int hash(CharSequence s, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + asciiLower(s.charAt(i));
+        }
+        return h;
+    }
+
+    /**
+     * Reports whether the ASCII text {@code s[start, end)} folds to
+     * {@code key}, without creating its key.
+     *
+     * @param key
+     *            a folded key
+     * @param s
+     *            the text, ASCII or already folded
+     * @param start
+     *            start index (inclusive)
+     * @param end
+     *            end index (exclusive)
+     * @return true if the text's key equals {@code key}
+     */
+    static boolean matches(String key, CharSequence s, int start, int end) {
+        if (key.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (key.charAt(i - start) != asciiLower(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,403 @@
+import components.map.Map;
+
+/**
+ * Finds glossary terms inside a definition. Terms are matched on whole words
+ * and the longest (multi-word) term at each position wins, so "linked list" is
+ * linked as one term even when "linked" is also in the glossary.
+ *
+ * <p>
+ * The terms are kept in a trie of words. Each word of the definition is looked
+ * up once per trie level, so linking a definition takes time proportional to
+ * its length (times the word count of the longest term), no matter how many
+ * terms are in the glossary. Words are compared by their {@link TermKeys} key,
+ * so case, accents written either way and full-width forms do not matter; the
+ * keys of the terms are built once, when the linker is built.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public final class TermLinker {
+
+    /**
+     * Receives the pieces of a definition, in order, as it is linked.
+     */
+    public interface LinkHandler {
+
+        /**
+         * Called for a piece of the definition that is not a term.
+         *
+         * @param source
+         *            the definition
+         * @param start
+         *            start index of the piece (inclusive)
+         * @param end
+         *            end index of the piece (exclusive)
+         */
+        void text(String source, int start, int end);
+
+        /**
+         * Called for a piece of the definition that matches a term.
+         *
+         * @param source
+         *            the definition
+         * @param start
+         *            start index of the piece (inclusive)
+         * @param end
+         *            end index of the piece (exclusive)
+         * @param term
+         *            the glossary term that was matched
+         */
+        void link(String source, int start, int end, String term);
+    }
+
+    /**
+     * A node of the word trie.
+     */
+    private static final class Node {
+
+        /**
+         * Keys (folded words) of the children, in an open-addressing table
+         * whose length is 0 or a power of 2.
+         */
+        private String[] keys = NO_KEYS;
+
+        /**
+         * The children, at the same positions as their keys.
+         */
+        private Node[] children = NO_CHILDREN;
+
+        /**
+         * Number of children.
+         */
+        private int size = 0;
+
+        /**
+         * The glossary term ending at this node, or null if none does.
+         */
+        private String term = null;
+
+        /**
+         * Returns the child for the word {@code s[start, end)}, which must be
+         * ASCII or already folded, or null if there is none. Nothing is
+         * allocated.
+         *
+         * @param s
+         *            the text holding the word
+         * @param start
+         *            start of the word (inclusive)
+         * @param end
+         *            end of the word (exclusive)
+         * @return the child, or null
+         */
+        private Node get(CharSequence s, int start, int end) {
+            Node child = null;
+            if (this.size > 0) {
+                int mask = this.keys.length - 1;
+                int i = spread(TermKeys.hash(s, start, end)) & mask;
+                while (child == null && this.keys[i] != null) {
+                    if (TermKeys.matches(this.keys[i], s, start, end)) {
+                        child = this.children[i];
+                    }
+                    i = (i + 1) & mask;
+                }
+            }
+            return child;
+        }
+
+        /**
+         * Returns the child for {@code key}, adding it if there is none.
+         *
+         * @param key
+         *            a folded word
+         * @return the child
+         */
+        private Node getOrAdd(String key) {
+            Node child = this.get(key, 0, key.length());
+            if (child == null) {
+                if (2 * (this.size + 1) > this.keys.length) {
+                    this.grow();
+                }
+                child = new Node();
+                this.put(key, child);
+                this.size++;
+            }
+            return child;
+        }
+
+        /**
+         * Puts a child into the first free slot for its key.
+         *
+         * @param key
+         *            the child's key
+         * @param child
+         *            the child
+         */
+        private void put(String key, Node child) {
+            int mask = this.keys.length - 1;
+            int i = spread(TermKeys.hash(key, 0, key.length())) & mask;
+            while (this.keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            this.keys[i] = key;
+            this.children[i] = child;
+        }
+
+        /**
+         * Doubles the table, keeping it at most half full.
+         */
+        private void grow() {
+            String[] oldKeys = this.keys;
+            Node[] oldChildren = this.children;
+            int capacity = Math.max(2, 2 * oldKeys.length);
+            this.keys = new String[capacity];
+            this.children = new Node[capacity];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    this.put(oldKeys[i], oldChildren[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Key table of a node without children.
+     */
+    private static final String[] NO_KEYS = new String[0];
+
+    /**
+     * Child table of a node without children.
+     */
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    /**
+     * Root of the word trie.
+     */
+    private final Node root = new Node();
+
+    /**
+     * Builds a linker for the terms of the given glossary.
+     *
+     * @param glossary
+     *            the glossary whose terms should be linked
+     * @requires glossary is not null
+     */
+    public TermLinker(Map<String, String> glossary) {
+        assert glossary != null : "Violation of: glossary is not null";
+
+        for (Map.Pair<String, String> pair : glossary) {
+            this.addTerm(pair.key());
+        }
+    }
+
+    /**
+     * Adds a term to the trie. Terms with no words in them are ignored. When
+     * two terms have the same words (e.g. "Word" and "word"), the smaller one
+     * is kept so the result does not depend on the glossary's iteration order.
+     *
+     * @param term
+     *            the term to add
+     */
+    private void addTerm(String term) {
+        Node node = this.root;
+        int pos = nextWordStart(term, 0);
+        while (pos < term.length()) {
+            int end = wordEnd(term, pos);
+            node = node.getOrAdd(TermKeys.fold(term, pos, end));
+            pos = nextWordStart(term, end);
+        }
+        if (node != this.root && (node.term == null || term.compareTo(node.term) < 0)) {
+            node.term = term;
+        }
+    }
+
+    /**
+     * Splits {@code definition} into plain text and linked terms and reports
+     * the pieces to {@code handler} in order. Concatenating the pieces gives
+     * back the definition unchanged.
+     *
+     * @param definition
+     *            the definition to link
+     * @param handler
+     *            receives the pieces of the definition
+     * @requires definition is not null and handler is not null
+     */
+    public void link(String definition, LinkHandler handler) {
+        assert definition != null : "Violation of: definition is not null";
+        assert handler != null : "Violation of: handler is not null";
+
+        int length = definition.length();
+        int textStart = 0;
+        int pos = nextWordStart(definition, 0);
+        while (pos < length) {
+            int end = wordEnd(definition, pos);
+
+            /*
+             * Walks down the trie one word at a time, remembering the last node
+             * that completes a term. Words of a multi-word term may only be
+             * separated by spaces or by joining punctuation ("R&D", "I/O").
+             */
+            String matchTerm = null;
+            int matchEnd = end;
+            int lastEnd = end;
+            Node node = child(this.root, definition, pos, end);
+            while (node != null) {
+                if (node.term != null) {
+                    matchTerm = node.term;
+                    matchEnd = lastEnd;
+                }
+                int next = skipJoiners(definition, lastEnd);
+                if (node.size == 0 || next == lastEnd || next >= length
+                        || !isWordChar(definition.codePointAt(next))) {
+                    node = null;
+                } else {
+                    int nextEnd = wordEnd(definition, next);
+                    node = child(node, definition, next, nextEnd);
+                    lastEnd = nextEnd;
+                }
+            }
+
+            if (matchTerm != null) {
+                if (pos > textStart) {
+                    handler.text(definition, textStart, pos);
+                }
+                handler.link(definition, pos, matchEnd, matchTerm);
+                textStart = matchEnd;
+                pos = nextWordStart(definition, matchEnd);
+            } else {
+                pos = nextWordStart(definition, end);
+            }
+        }
+        if (length > textStart) {
+            handler.text(definition, textStart, length);
+        }
+    }
+
+    /**
+     * Returns the child of {@code node} for the word {@code s[start, end)}.
+     * ASCII words are looked up as they are; only other words are folded
+     * into a new string first.
+     *
+     * @param node
+     *            the node
+     * @param s
+     *            the text holding the word
+     * @param start
+     *            start of the word (inclusive)
+     * @param end
+     *            end of the word (exclusive)
+     * @return the child, or null if there is none
+     */
+    private static Node child(Node node, String s, int start, int end) {
+        Node child;
+        if (TermKeys.isAscii(s, start, end)) {
+            child = node.get(s, start, end);
+        } else {
+            String key = TermKeys.fold(s, start, end);
+            child = node.get(key, 0, key.length());
+        }
+        return child;
+    }
+
+    /**
+     * Spreads the high bits of a hash into the low ones used by the tables.
+     *
+     * @param h
+     *            the hash
+     * @return the spread hash
+     */
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Reports whether a code point is part of a word. Combining marks are, so
+     * a decomposed accented letter does not split its word.
+     *
+     * @param codePoint
+     *            the code point to check
+     * @return true if the code point is a letter, a digit or a mark
+     */
+    private static boolean isWordChar(int codePoint) {
+        boolean word = Character.isLetterOrDigit(codePoint);
+        if (!word) {
+            int type = Character.getType(codePoint);
+            word = type == Character.NON_SPACING_MARK
+                    || type == Character.COMBINING_SPACING_MARK
+                    || type == Character.ENCLOSING_MARK;
+        }
+        return word;
+    }
+
+    /**
+     * Returns the index of the first word character at or after {@code pos},
+     * or {@code s.length()} if there is none.
+     *
+     * @param s
+     *            the string to search
+     * @param pos
+     *            the index to start at
+     * @return the start of the next word
+     */
+    private static int nextWordStart(String s, int pos) {
+        int i = pos;
+        while (i < s.length()) {
+            int cp = s.codePointAt(i);
+            if (isWordChar(cp)) {
+                return i;
+            }
+            i += Character.charCount(cp);
+        }
+        return s.length();
+    }
+
+    /**
+     * Returns the end (exclusive) of the word starting at {@code pos}.
+     *
+     * @param s
+     *            the string to search
+     * @param pos
+     *            the start of a word
+     * @return the end of the word
+     */
+    private static int wordEnd(String s, int pos) {
+        int i = pos;
+        while (i < s.length()) {
+            int cp = s.codePointAt(i);
+            if (!isWordChar(cp)) {
+                return i;
+            }
+            i += Character.charCount(cp);
+        }
+        return s.length();
+    }
+
+    /**
+     * Reports whether a character may separate the words of one term.
+     *
+     * @param c
+     *            the character to check
+     * @return true if {@code c} is a space, '-', '/', '&' or '\''
+     */
+    private static boolean isJoiner(char c) {
+        return Character.isWhitespace(c) || c == '-' || c == '/' || c == '&'
+                || c == '\'';
+    }
+
+    /**
+     * Returns the index after any joining characters starting at {@code pos}.
+     *
+     * @param s
+     *            the string to search
+     * @param pos
+     *            the index to start at
+     * @return the index of the first character that is not a joiner
+     */
+    private static int skipJoiners(String s, int pos) {
+        int i = pos;
+        while (i < s.length() && isJoiner(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+}
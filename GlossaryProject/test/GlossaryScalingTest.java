@@ -0,0 +1,273 @@
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.management.Attribute;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Scaling tests for glossary. The whole pipeline runs on synthetic glossaries
+ * of growing size, and the CPU time and bytes allocated per term must stay
+ * about the same; work that grows with the square of the glossary would make
+ * them grow with it.
+ *
+ * <p>
+ * Costs are measured on the test thread with the JVM's per-thread counters,
+ * so pages are written on this thread too. The bytes allocated are read
+ * through the platform MBean server and only checked on JVMs that count them.
+ *
+ * <p>
+ * The tests are slow, so they are in the {@link ScalingTests} category and
+ * are skipped unless the {@link ScalingTests#PROPERTY} system property is
+ * true.
+ *
+ * @author Caleb Parrott
+ */
+@Category(ScalingTests.class)
+public class GlossaryScalingTest {
+
+    /**
+     * Words in each definition.
+     */
+    private static final int DEFINITION_WORDS = 40;
+
+    /**
+     * Fraction of definition words that are terms.
+     */
+    private static final double LINK_DENSITY = 0.25;
+
+    /**
+     * Most that the cost per term may grow from the smallest to the largest
+     * glossary. The glossaries grow 8 times, so quadratic work would grow the
+     * cost per term about 8 times.
+     */
+    private static final double MAX_TIME_GROWTH = 3.0;
+
+    /**
+     * Most that the bytes allocated per term may grow from the smallest to
+     * the largest glossary.
+     */
+    private static final double MAX_ALLOCATION_GROWTH = 1.5;
+
+    /**
+     * The thread counters of the JVM.
+     */
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /**
+     * Name of the threading MBean, which also counts the bytes each thread
+     * allocates on JVMs that support it.
+     */
+    private static final String THREADING = ManagementFactory.THREAD_MXBEAN_NAME;
+
+    /**
+     * Whether this JVM counts the bytes each thread allocates.
+     */
+    private static boolean allocationCounted = false;
+
+    /**
+     * Folders for the synthetic glossaries and their pages, deleted after
+     * each test.
+     */
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * Skips the tests unless they are turned on, and turns on the counters
+     * they use.
+     */
+    @BeforeClass
+    public static void enableCounters() {
+        Assume.assumeTrue("Scaling tests run only with -D" + ScalingTests.PROPERTY
+                + "=true", Boolean.getBoolean(ScalingTests.PROPERTY));
+        Assume.assumeTrue(THREADS.isCurrentThreadCpuTimeSupported());
+        THREADS.setThreadCpuTimeEnabled(true);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(THREADING);
+            allocationCounted = Boolean.TRUE.equals(
+                    server.getAttribute(name, "ThreadAllocatedMemorySupported"));
+            if (allocationCounted) {
+                server.setAttribute(name,
+                        new Attribute("ThreadAllocatedMemoryEnabled", Boolean.TRUE));
+            }
+        } catch (JMException e) {
+            // this JVM does not count allocations; only CPU time is checked
+            allocationCounted = false;
+        }
+    }
+
+    /**
+     * Returns the bytes allocated so far by thread {@code thread}, or 0 if
+     * the JVM does not count them.
+     *
+     * @param thread
+     *            the thread id
+     * @return the bytes allocated by the thread
+     */
+    private static long allocatedBytes(long thread) {
+        long bytes = 0;
+        if (allocationCounted) {
+            try {
+                bytes = (Long) ManagementFactory.getPlatformMBeanServer().invoke(
+                        new ObjectName(THREADING), "getThreadAllocatedBytes",
+                        new Object[] { thread }, new String[] { "long" });
+            } catch (JMException e) {
+                throw new IllegalStateException("Could not read allocated bytes", e);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Generates a synthetic glossary and its files and returns the cost.
+     *
+     * @param termCount
+     *            number of terms
+     * @param definitionWords
+     *            number of words in each definition
+     * @return the CPU time in nanoseconds and the bytes allocated, both on
+     *         this thread
+     * @throws IOException
+     *             if the temporary files cannot be used
+     */
+    private long[] runPipeline(int termCount, int definitionWords)
+            throws IOException {
+        Path folder = this.temp.newFolder().toPath();
+        Path input = folder.resolve("input.txt");
+        SyntheticGlossary.write(input, termCount, definitionWords, LINK_DENSITY,
+                termCount);
+        Path pages = Files.createDirectory(folder.resolve("pages"));
+        SimpleWriter out = new SimpleWriter1L(folder.resolve("console.txt").toString());
+
+        long thread = Thread.currentThread().getId();
+        long time = THREADS.getCurrentThreadCpuTime();
+        long bytes = allocatedBytes(thread);
+
+        Main.generateGlossaryMap(input.toString());
+        Main.generateGlossaryFiles(pages.toString(), out);
+
+        long[] cost = { THREADS.getCurrentThreadCpuTime() - time,
+                allocatedBytes(thread) - bytes };
+
+        out.close();
+        Main.clearGlossaryMap();
+        return cost;
+    }
+
+    /**
+     * Returns the cheapest of a few runs of the pipeline, which is the one
+     * least disturbed by garbage collection and the JIT compiler.
+     *
+     * @param termCount
+     *            number of terms
+     * @param definitionWords
+     *            number of words in each definition
+     * @return the least CPU time and the least bytes allocated
+     * @throws IOException
+     *             if the temporary files cannot be used
+     */
+    private long[] bestOfRuns(int termCount, int definitionWords)
+            throws IOException {
+        long[] best = { Long.MAX_VALUE, Long.MAX_VALUE };
+        for (int run = 0; run < 3; run++) {
+            long[] cost = runPipeline(termCount, definitionWords);
+            best[0] = Math.min(best[0], cost[0]);
+            best[1] = Math.min(best[1], cost[1]);
+        }
+        return best;
+    }
+
+    /**
+     * Checks that the cost of the pipeline grows about linearly from
+     * {@code small} to {@code large}. Allocation is only checked if the JVM
+     * counts it.
+     *
+     * @param small
+     *            cost of the small run
+     * @param smallSize
+     *            size of the small run
+     * @param large
+     *            cost of the large run
+     * @param largeSize
+     *            size of the large run
+     */
+    private static void assertLinear(long[] small, int smallSize, long[] large,
+            int largeSize) {
+        double timeGrowth = ((double) large[0] / largeSize)
+                / ((double) small[0] / smallSize);
+        assertTrue("CPU time per unit grew " + timeGrowth + " times",
+                timeGrowth < MAX_TIME_GROWTH);
+
+        if (allocationCounted) {
+            double allocationGrowth = ((double) large[1] / largeSize)
+                    / ((double) small[1] / smallSize);
+            assertTrue("Bytes allocated per unit grew " + allocationGrowth + " times",
+                    allocationGrowth < MAX_ALLOCATION_GROWTH);
+        }
+    }
+
+    /**
+     * Test that generateGlossaryMap and generateGlossaryFiles scale linearly
+     * with the number of terms.
+     *
+     * @throws IOException
+     *             if the temporary files cannot be used
+     */
+    @Test
+    public void pipelineScalesWithTermCount() throws IOException {
+        Main.setAsyncWrites(false);
+        try {
+            // warms up the JIT compiler
+            runPipeline(2000, DEFINITION_WORDS);
+
+            long[] small = bestOfRuns(1000, DEFINITION_WORDS);
+            long[] large = bestOfRuns(8000, DEFINITION_WORDS);
+
+            assertLinear(small, 1000, large, 8000);
+        } finally {
+            Main.setAsyncWrites(true);
+        }
+    }
+
+    /**
+     * Test that generateGlossaryMap and generateGlossaryFiles scale linearly
+     * with the length of the definitions.
+     *
+     * @throws IOException
+     *             if the temporary files cannot be used
+     */
+    @Test
+    public void pipelineScalesWithDefinitionLength() throws IOException {
+        Main.setAsyncWrites(false);
+        try {
+            // warms up the JIT compiler
+            runPipeline(500, 2 * DEFINITION_WORDS);
+
+            long[] small = bestOfRuns(500, DEFINITION_WORDS);
+            long[] large = bestOfRuns(500, 8 * DEFINITION_WORDS);
+
+            assertLinear(small, DEFINITION_WORDS, large, 8 * DEFINITION_WORDS);
+        } finally {
+            Main.setAsyncWrites(true);
+        }
+    }
+
+}
@@ -0,0 +1,16 @@
+/**
+ * JUnit category of the slow scaling tests, such as
+ * {@link GlossaryScalingTest}. They are left out of the normal test run and
+ * are only run when the {@code glossary.scalingTests} system property is
+ * true, e.g. with {@code -Dglossary.scalingTests=true}.
+ *
+ * @author Caleb Parrott
+ */
+public interface ScalingTests {
+
+    /**
+     * System property that turns the scaling tests on.
+     */
+    String PROPERTY = "glossary.scalingTests";
+
+}
@@ -0,0 +1,97 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Writes synthetic glossary input files for tests that need more terms than
+ * the fixtures in test/testInput. The same arguments always give the same
+ * file.
+ *
+ * <p>
+ * Term i is "term" + i; every fifth term has a second word, "part", so
+ * multi-word terms are linked too. Definitions are made of filler words that
+ * are never terms, with a given fraction of the words replaced by random
+ * terms.
+ *
+ * @author Caleb Parrott
+ *
+ */
+public final class SyntheticGlossary {
+
+    /**
+     * Number of different filler words.
+     */
+    private static final int VOCABULARY = 500;
+
+    /**
+     * No argument constructor--private to prevent instantiation.
+     */
+    private SyntheticGlossary() {
+    }
+
+    /**
+     * Returns term {@code i}.
+     *
+     * @param i
+     *            the number of the term
+     * @return the term
+     */
+    public static String term(int i) {
+        String term = "term" + i;
+        if (i % 5 == 0) {
+            term += " part";
+        }
+        return term;
+    }
+
+    /**
+     * Writes a glossary input file.
+     *
+     * @param file
+     *            the file to write
+     * @param termCount
+     *            number of terms
+     * @param definitionWords
+     *            number of words in each definition
+     * @param linkDensity
+     *            fraction of the definition words that are terms, from 0 to 1
+     * @param seed
+     *            seed of the random choices
+     * @throws IOException
+     *             if the file cannot be written
+     * @requires termCount > 0, definitionWords > 0 and 0 <= linkDensity <= 1
+     * @ensures file holds termCount terms with their definitions
+     */
+    public static void write(Path file, int termCount, int definitionWords,
+            double linkDensity, long seed) throws IOException {
+        assert termCount > 0 : "Violation of: termCount > 0";
+        assert definitionWords > 0 : "Violation of: definitionWords > 0";
+        assert linkDensity >= 0 && linkDensity <= 1
+                : "Violation of: 0 <= linkDensity <= 1";
+
+        Random random = new Random(seed);
+        try (BufferedWriter out = Files.newBufferedWriter(file,
+                StandardCharsets.UTF_8)) {
+            for (int i = 0; i < termCount; i++) {
+                out.write(term(i));
+                out.newLine();
+                for (int w = 0; w < definitionWords; w++) {
+                    if (w > 0) {
+                        out.write(' ');
+                    }
+                    if (random.nextDouble() < linkDensity) {
+                        out.write(term(random.nextInt(termCount)));
+                    } else {
+                        out.write("filler" + random.nextInt(VOCABULARY));
+                    }
+                }
+                out.newLine();
+                out.newLine();
+            }
+        }
+    }
+
+}